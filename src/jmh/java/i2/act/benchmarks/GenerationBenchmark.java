@@ -0,0 +1,171 @@
+package i2.act.benchmarks;
+
+import i2.act.fuzzer.TokenStreamFuzzer;
+import i2.act.fuzzer.TreeFuzzer;
+import i2.act.fuzzer.selection.SelectionStrategy;
+import i2.act.fuzzer.selection.WeightedRandomSelection;
+import i2.act.fuzzer.tokens.RandomTokenGenerator;
+import i2.act.fuzzer.tokens.TokenGenerator;
+import i2.act.fuzzer.util.TokenJoiner;
+import i2.act.packrat.Token;
+import i2.act.packrat.cst.Node;
+import i2.act.util.RandomNumberGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// generation of complete programs with the default selection strategy ('rand'); the primary result
+// is in programs per second, the secondary results in bytes and tokens per second (see
+// 'OutputCounters')
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GenerationBenchmark {
+
+  @State(Scope.Thread)
+  public static class Generators {
+
+    @Param({"java", "splitmix", "xoshiro"})
+    public String algorithm;
+
+    public RandomNumberGenerator rng;
+    public long seed;
+
+    public TreeFuzzer treeFuzzer;
+    public TokenStreamFuzzer tokenStreamFuzzer;
+    public TokenJoiner joiner;
+
+    @Setup(Level.Trial)
+    public void setUp(final GrammarState grammar) {
+      this.rng = new RandomNumberGenerator(
+          RandomNumberGenerator.Algorithm.fromName(this.algorithm), GrammarState.INITIAL_SEED);
+      this.seed = GrammarState.INITIAL_SEED;
+
+      final TokenGenerator tokenGenerator =
+          new RandomTokenGenerator(grammar.grammarGraph, this.rng);
+      final SelectionStrategy selectionStrategy = new WeightedRandomSelection(this.rng);
+
+      this.treeFuzzer = new TreeFuzzer(
+          grammar.indexedGraph, grammar.maxHeight, tokenGenerator, selectionStrategy, null);
+      this.tokenStreamFuzzer = new TokenStreamFuzzer(
+          grammar.indexedGraph, grammar.maxHeight, tokenGenerator, selectionStrategy, null);
+
+      this.joiner = new TokenJoiner(grammar.grammar, " ");
+    }
+
+    public final void nextSeed() {
+      this.rng.setSeed(this.seed++);
+    }
+
+  }
+
+  @Benchmark
+  public Node<?> treeFuzzer(final Generators generators, final OutputCounters counters) {
+    generators.nextSeed();
+
+    final Node<?> tree = generators.treeFuzzer.generate();
+    counters.countTokens(tree);
+
+    return tree;
+  }
+
+  @Benchmark
+  public List<Token> tokenStreamFuzzer(final Generators generators,
+      final OutputCounters counters) {
+    generators.nextSeed();
+
+    final List<Token> tokens = generators.tokenStreamFuzzer.generate();
+    counters.countTokens(tokens);
+
+    return tokens;
+  }
+
+  @Benchmark
+  public String treeFuzzerJoined(final Generators generators, final OutputCounters counters) {
+    generators.nextSeed();
+
+    final Node<?> tree = generators.treeFuzzer.generate();
+
+    final String program = generators.joiner.join(tree);
+    counters.countProgram(program, OutputCounters.numberOfTokens(tree));
+
+    return program;
+  }
+
+  @Benchmark
+  public String tokenStreamFuzzerJoined(final Generators generators,
+      final OutputCounters counters) {
+    generators.nextSeed();
+
+    final List<Token> tokens = generators.tokenStreamFuzzer.generate();
+
+    final String program = generators.joiner.join(tokens);
+    counters.countProgram(program, tokens.size());
+
+    return program;
+  }
+
+  // corresponds to the '--stream' mode of 'FuzzPEG' (the output is only counted)
+  @Benchmark
+  public long tokenStreamFuzzerStreamed(final Generators generators,
+      final OutputCounters counters) {
+    generators.nextSeed();
+
+    final CountingAppendable out = new CountingAppendable();
+    final TokenJoiner.Sink sink = generators.joiner.sink(out);
+
+    generators.tokenStreamFuzzer.generate((token) -> {
+      ++out.numberOfTokens;
+      sink.accept(token);
+    });
+
+    counters.bytes += out.length;
+    counters.tokens += out.numberOfTokens;
+
+    return out.length;
+  }
+
+  // counts the bytes of the UTF-8 encoding
+  private static final class CountingAppendable implements Appendable {
+
+    private long length;
+    private int numberOfTokens;
+
+    @Override
+    public final Appendable append(final char character) {
+      if (character < 0x80) {
+        this.length += 1;
+      } else if (character < 0x800 || Character.isSurrogate(character)) {
+        // each half of a surrogate pair accounts for two of its four bytes
+        this.length += 2;
+      } else {
+        this.length += 3;
+      }
+
+      return this;
+    }
+
+    @Override
+    public final Appendable append(final CharSequence sequence) {
+      this.length += OutputCounters.utf8Length(sequence, 0, sequence.length());
+      return this;
+    }
+
+    @Override
+    public final Appendable append(final CharSequence sequence, final int start, final int end) {
+      this.length += OutputCounters.utf8Length(sequence, start, end);
+      return this;
+    }
+
+  }
+
+}
@@ -0,0 +1,50 @@
+package i2.act.benchmarks;
+
+import i2.act.grammargraph.GrammarGraph;
+import i2.act.grammargraph.IndexedGrammarGraph;
+import i2.act.grammargraph.properties.MinMaxHeightComputation;
+import i2.act.main.FuzzPEG;
+import i2.act.peg.ast.Grammar;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// the grammar (and the derived grammar graphs) that a benchmark runs on; the directory that
+// contains the grammars can be set via the 'fuzzpeg.grammars' system property
+@State(Scope.Benchmark)
+public class GrammarState {
+
+  public static final String PROPERTY_GRAMMARS = "fuzzpeg.grammars";
+
+  // the seed of the first program; each further program uses the next seed (as in 'FuzzPEG')
+  public static final long INITIAL_SEED = 42;
+
+  @Param({"c", "calculation", "e2", "lua", "minic", "smt2", "sql"})
+  public String grammarName;
+
+  public String grammarPath;
+
+  public Grammar grammar;
+  public GrammarGraph grammarGraph;
+  public IndexedGrammarGraph indexedGraph;
+
+  public int maxHeight;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    final String grammarDirectory = System.getProperty(PROPERTY_GRAMMARS, "grammars");
+
+    this.grammarPath = String.format("%s/%s.txt", grammarDirectory, this.grammarName);
+
+    this.grammar = FuzzPEG.readGrammar(this.grammarPath);
+    this.grammarGraph = GrammarGraph.fromGrammar(this.grammar);
+    this.indexedGraph = IndexedGrammarGraph.fromGrammarGraph(this.grammarGraph);
+
+    // same default as in 'FuzzPEG'
+    this.maxHeight = MinMaxHeightComputation.computeMinMaxHeight(this.grammarGraph);
+  }
+
+}
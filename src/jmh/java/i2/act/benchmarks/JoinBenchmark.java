@@ -0,0 +1,101 @@
+package i2.act.benchmarks;
+
+import i2.act.fuzzer.TokenStreamFuzzer;
+import i2.act.fuzzer.TreeFuzzer;
+import i2.act.fuzzer.selection.SelectionStrategy;
+import i2.act.fuzzer.selection.WeightedRandomSelection;
+import i2.act.fuzzer.tokens.RandomTokenGenerator;
+import i2.act.fuzzer.tokens.TokenGenerator;
+import i2.act.fuzzer.util.TokenJoiner;
+import i2.act.packrat.Token;
+import i2.act.packrat.cst.Node;
+import i2.act.util.RandomNumberGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// joining of pre-generated programs (i.e., without the cost of the generation itself)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JoinBenchmark {
+
+  public static final int NUMBER_OF_PROGRAMS = 64;
+
+  @State(Scope.Thread)
+  public static class Programs {
+
+    public TokenJoiner joiner;
+
+    public Node<?>[] trees;
+    public List<?>[] tokens;
+
+    public int next;
+
+    @Setup(Level.Trial)
+    public void setUp(final GrammarState grammar) {
+      final RandomNumberGenerator rng = new RandomNumberGenerator();
+
+      final TokenGenerator tokenGenerator = new RandomTokenGenerator(grammar.grammarGraph, rng);
+      final SelectionStrategy selectionStrategy = new WeightedRandomSelection(rng);
+
+      final TreeFuzzer treeFuzzer = new TreeFuzzer(
+          grammar.indexedGraph, grammar.maxHeight, tokenGenerator, selectionStrategy, null);
+      final TokenStreamFuzzer tokenStreamFuzzer = new TokenStreamFuzzer(
+          grammar.indexedGraph, grammar.maxHeight, tokenGenerator, selectionStrategy, null);
+
+      this.joiner = new TokenJoiner(grammar.grammar, " ");
+
+      this.trees = new Node<?>[NUMBER_OF_PROGRAMS];
+      this.tokens = new List<?>[NUMBER_OF_PROGRAMS];
+
+      for (int index = 0; index < NUMBER_OF_PROGRAMS; ++index) {
+        rng.setSeed(GrammarState.INITIAL_SEED + index);
+        this.trees[index] = treeFuzzer.generate();
+
+        rng.setSeed(GrammarState.INITIAL_SEED + index);
+        this.tokens[index] = tokenStreamFuzzer.generate();
+      }
+
+      this.next = 0;
+    }
+
+    public final int nextIndex() {
+      final int index = this.next;
+      this.next = (this.next + 1) % NUMBER_OF_PROGRAMS;
+
+      return index;
+    }
+
+  }
+
+  @Benchmark
+  public String joinTree(final Programs programs, final OutputCounters counters) {
+    final Node<?> tree = programs.trees[programs.nextIndex()];
+
+    final String program = programs.joiner.join(tree);
+    counters.countProgram(program, OutputCounters.numberOfTokens(tree));
+
+    return program;
+  }
+
+  @Benchmark
+  public String joinTokens(final Programs programs, final OutputCounters counters) {
+    @SuppressWarnings("unchecked")
+    final List<Token> tokens = (List<Token>) programs.tokens[programs.nextIndex()];
+
+    final String program = programs.joiner.join(tokens);
+    counters.countProgram(program, tokens.size());
+
+    return program;
+  }
+
+}
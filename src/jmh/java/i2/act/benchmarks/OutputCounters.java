@@ -0,0 +1,118 @@
+package i2.act.benchmarks;
+
+import i2.act.packrat.Token;
+import i2.act.packrat.cst.Node;
+import i2.act.packrat.cst.TerminalNode;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+// secondary results of the benchmarks: JMH reports the public fields as rates (i.e., in throughput
+// mode, 'bytes' is reported in bytes per time unit)
+//
+// 'bytes' is the size of the UTF-8 encoding of the output (as written by 'FuzzPEG'); for programs
+// that are not joined, it is the size of the token values (i.e., without separators)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+@State(Scope.Thread)
+public class OutputCounters {
+
+  public long bytes;
+  public long tokens;
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    this.bytes = 0;
+    this.tokens = 0;
+  }
+
+  public final void countProgram(final String program, final int numberOfTokens) {
+    this.bytes += utf8Length(program, 0, program.length());
+    this.tokens += numberOfTokens;
+  }
+
+  public final void countToken(final Token token) {
+    final String value = token.getValue();
+
+    this.bytes += utf8Length(value, 0, value.length());
+    ++this.tokens;
+  }
+
+  public final void countTokens(final List<Token> tokens) {
+    for (final Token token : tokens) {
+      countToken(token);
+    }
+  }
+
+  public final void countTokens(final Node<?> syntaxTree) {
+    final Deque<Node<?>> worklist = new ArrayDeque<>();
+    worklist.push(syntaxTree);
+
+    while (!worklist.isEmpty()) {
+      final Node<?> node = worklist.pop();
+
+      if (node instanceof TerminalNode) {
+        countToken(((TerminalNode) node).getToken());
+      } else {
+        for (final Node<?> child : node.getChildren()) {
+          worklist.push(child);
+        }
+      }
+    }
+  }
+
+  public static final int numberOfTokens(final Node<?> syntaxTree) {
+    int numberOfTokens = 0;
+
+    final Deque<Node<?>> worklist = new ArrayDeque<>();
+    worklist.push(syntaxTree);
+
+    while (!worklist.isEmpty()) {
+      final Node<?> node = worklist.pop();
+
+      if (node instanceof TerminalNode) {
+        ++numberOfTokens;
+      } else {
+        for (final Node<?> child : node.getChildren()) {
+          worklist.push(child);
+        }
+      }
+    }
+
+    return numberOfTokens;
+  }
+
+  // the number of bytes of the UTF-8 encoding (without creating it); unpaired surrogates are
+  // encoded as a single replacement byte (as by 'String.getBytes')
+  public static final long utf8Length(final CharSequence sequence, final int start,
+      final int end) {
+    long length = 0;
+
+    for (int index = start; index < end; ++index) {
+      final char character = sequence.charAt(index);
+
+      if (character < 0x80) {
+        length += 1;
+      } else if (character < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(character) && index + 1 < end
+          && Character.isLowSurrogate(sequence.charAt(index + 1))) {
+        length += 4;
+        ++index;
+      } else if (Character.isSurrogate(character)) {
+        length += 1;
+      } else {
+        length += 3;
+      }
+    }
+
+    return length;
+  }
+
+}
@@ -0,0 +1,89 @@
+package i2.act.benchmarks;
+
+import i2.act.coverage.AlternativeCoverage;
+import i2.act.fuzzer.TokenStreamFuzzer;
+import i2.act.fuzzer.selection.SelectionStrategy;
+import i2.act.fuzzer.selection.SelectionStrategyParser;
+import i2.act.fuzzer.tokens.RandomTokenGenerator;
+import i2.act.fuzzer.tokens.TokenGenerator;
+import i2.act.fuzzer.util.TokenJoiner;
+import i2.act.packrat.Token;
+import i2.act.util.RandomNumberGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// generation (and joining) of complete programs with each of the selection strategies; the
+// coverage is reset when all alternatives have been covered (as with '--resetCoverage')
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SelectionBenchmark {
+
+  @State(Scope.Thread)
+  public static class Generator {
+
+    @Param({
+        "rand",
+        "uniform",
+        "alias",
+        "small",
+        "small(0.5, rand)",
+        "uncov(rand, rand)",
+        "reachesUncov(rand, rand, false)",
+        "reachesUncov(rand, rand, true)"})
+    public String selection;
+
+    public RandomNumberGenerator rng;
+    public long seed;
+
+    public AlternativeCoverage coverage;
+    public TokenStreamFuzzer fuzzer;
+    public TokenJoiner joiner;
+
+    @Setup(Level.Trial)
+    public void setUp(final GrammarState grammar) {
+      this.rng = new RandomNumberGenerator(GrammarState.INITIAL_SEED);
+      this.seed = GrammarState.INITIAL_SEED;
+
+      this.coverage = new AlternativeCoverage(grammar.indexedGraph);
+
+      final TokenGenerator tokenGenerator =
+          new RandomTokenGenerator(grammar.grammarGraph, this.rng);
+      final SelectionStrategy selectionStrategy = SelectionStrategyParser.parse(
+          this.selection, grammar.indexedGraph, this.coverage, this.rng);
+
+      this.fuzzer = new TokenStreamFuzzer(grammar.indexedGraph, grammar.maxHeight,
+          tokenGenerator, selectionStrategy, this.coverage);
+
+      this.joiner = new TokenJoiner(grammar.grammar, " ");
+    }
+
+  }
+
+  @Benchmark
+  public String generate(final Generator generator, final OutputCounters counters) {
+    generator.rng.setSeed(generator.seed++);
+
+    final List<Token> tokens = generator.fuzzer.generate();
+
+    final String program = generator.joiner.join(tokens);
+    counters.countProgram(program, tokens.size());
+
+    if (generator.coverage.isFullyCovered()) {
+      generator.coverage.reset();
+    }
+
+    return program;
+  }
+
+}
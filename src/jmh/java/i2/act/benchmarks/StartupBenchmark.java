@@ -0,0 +1,76 @@
+package i2.act.benchmarks;
+
+import i2.act.grammargraph.GrammarGraph;
+import i2.act.grammargraph.GrammarGraphNode;
+import i2.act.grammargraph.IndexedGrammarGraph;
+import i2.act.grammargraph.properties.MinHeightComputation;
+import i2.act.grammargraph.properties.MinMaxHeightComputation;
+import i2.act.grammargraph.properties.MinSizeComputation;
+import i2.act.grammargraph.properties.ReachableAlternatives;
+import i2.act.grammargraph.properties.ReachableComputation;
+import i2.act.grammargraph.properties.ReachableNodesComputation;
+import i2.act.main.FuzzPEG;
+import i2.act.peg.ast.Grammar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// one-time costs when 'FuzzPEG' starts up (reading the grammar and the property computations)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StartupBenchmark {
+
+  @Benchmark
+  public Grammar readGrammar(final GrammarState grammar) {
+    return FuzzPEG.readGrammar(grammar.grammarPath);
+  }
+
+  @Benchmark
+  public GrammarGraph grammarGraph(final GrammarState grammar) {
+    return GrammarGraph.fromGrammar(grammar.grammar);
+  }
+
+  // the min. heights and min. sizes are cached by 'GrammarAnalysis' after the first invocation ->
+  // only measures the indexing itself (the computations are measured separately)
+  @Benchmark
+  public IndexedGrammarGraph indexedGrammarGraph(final GrammarState grammar) {
+    return IndexedGrammarGraph.fromGrammarGraph(grammar.grammarGraph);
+  }
+
+  @Benchmark
+  public Map<GrammarGraphNode<?,?>, Integer> minHeights(final GrammarState grammar) {
+    return MinHeightComputation.computeMinHeights(grammar.grammarGraph);
+  }
+
+  @Benchmark
+  public Map<GrammarGraphNode<?,?>, Integer> minSizes(final GrammarState grammar) {
+    return MinSizeComputation.computeMinSizes(grammar.grammarGraph);
+  }
+
+  @Benchmark
+  public int minMaxHeight(final GrammarState grammar) {
+    return MinMaxHeightComputation.computeMinMaxHeight(grammar.grammarGraph);
+  }
+
+  @Benchmark
+  public Map<GrammarGraphNode<?,?>, Boolean> reachable(final GrammarState grammar) {
+    return ReachableComputation.computeReachable(grammar.grammarGraph, true);
+  }
+
+  @Benchmark
+  public Map<GrammarGraphNode<?,?>, Map<GrammarGraphNode<?,?>, Integer>> reachableNodes(
+      final GrammarState grammar) {
+    return ReachableNodesComputation.computeReachableNodes(grammar.grammarGraph);
+  }
+
+  @Benchmark
+  public ReachableAlternatives reachableAlternatives(final GrammarState grammar) {
+    return ReachableAlternatives.compute(grammar.indexedGraph);
+  }
+
+}
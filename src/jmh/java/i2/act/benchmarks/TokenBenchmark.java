@@ -0,0 +1,76 @@
+package i2.act.benchmarks;
+
+import i2.act.fuzzer.tokens.DFATokenGenerator;
+import i2.act.fuzzer.tokens.RandomTokenGenerator;
+import i2.act.fuzzer.tokens.TokenGenerator;
+import i2.act.packrat.Token;
+import i2.act.peg.symbols.LexerSymbol;
+import i2.act.util.RandomNumberGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// creation of single tokens; the lexer symbols of the grammar are used in a round-robin fashion
+// (i.e., each operation creates one token)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TokenBenchmark {
+
+  @State(Scope.Thread)
+  public static class Tokens {
+
+    @Param({"random", "dfa"})
+    public String generator;
+
+    public TokenGenerator tokenGenerator;
+
+    public LexerSymbol[] lexerSymbols;
+    public int next;
+
+    @Setup(Level.Trial)
+    public void setUp(final GrammarState grammar) {
+      final RandomNumberGenerator rng = new RandomNumberGenerator(GrammarState.INITIAL_SEED);
+
+      if (this.generator.equals("dfa")) {
+        this.tokenGenerator = new DFATokenGenerator(grammar.grammarGraph, rng);
+      } else {
+        this.tokenGenerator = new RandomTokenGenerator(grammar.grammarGraph, rng);
+      }
+
+      final List<LexerSymbol> lexerSymbols = new ArrayList<>();
+
+      for (final LexerSymbol lexerSymbol : grammar.grammar.getLexerSymbols()) {
+        if (lexerSymbol != LexerSymbol.EOF && !lexerSymbol.isSkippedToken()) {
+          lexerSymbols.add(lexerSymbol);
+        }
+      }
+
+      this.lexerSymbols = lexerSymbols.toArray(new LexerSymbol[lexerSymbols.size()]);
+      this.next = 0;
+    }
+
+  }
+
+  @Benchmark
+  public Token createToken(final Tokens tokens, final OutputCounters counters) {
+    final LexerSymbol lexerSymbol = tokens.lexerSymbols[tokens.next];
+    tokens.next = (tokens.next + 1) % tokens.lexerSymbols.length;
+
+    final Token token = tokens.tokenGenerator.createToken(lexerSymbol);
+    counters.countToken(token);
+
+    return token;
+  }
+
+}
@@ -3,67 +3,107 @@ package i2.act.coverage;
 import i2.act.grammargraph.GrammarGraph;
 import i2.act.grammargraph.GrammarGraphEdge.Alternative;
 import i2.act.grammargraph.GrammarGraphNode;
-import i2.act.grammargraph.GrammarGraphNode.Choice;
-import i2.act.grammargraph.properties.ReachableComputation;
+import i2.act.grammargraph.IndexedGrammarGraph;
+import i2.act.grammargraph.properties.GrammarAnalysis;
 
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+// The coverage may be shared by multiple generator threads: it is stored in an atomic bitset that
+// is indexed by the ids of the alternatives, i.e., none of the operations takes a lock.
 public final class AlternativeCoverage {
 
-  private final Set<Alternative> allAlternatives;
+  private static final int BITS_PER_WORD = 64;
 
-  private final Set<Alternative> covered;
+  private final IndexedGrammarGraph indexedGraph;
+  private final int totalCount;
+
+  private final AtomicLongArray covered;
+  private final AtomicInteger coveredCount;
+
+  // incremented after each reset (allows others to detect that covered alternatives may have
+  // become uncovered again)
+  private final AtomicInteger epoch;
 
   public AlternativeCoverage(final GrammarGraph grammarGraph) {
-    this.allAlternatives = determineAllAlternatives(grammarGraph);
-    this.covered = new HashSet<Alternative>();
+    this(IndexedGrammarGraph.fromGrammarGraph(grammarGraph));
+  }
+
+  public AlternativeCoverage(final IndexedGrammarGraph indexedGraph) {
+    this(indexedGraph, countReachableAlternatives(indexedGraph));
   }
 
-  private final Set<Alternative> determineAllAlternatives(final GrammarGraph grammarGraph) {
-    final Set<Alternative> allAlternatives = StreamSupport.stream(grammarGraph.spliterator(), false)
-        .filter(Choice.class::isInstance)
-        .map(Choice.class::cast)
-        .map(GrammarGraphNode::getSuccessorEdges)
-        .flatMap(List::stream)
-        .collect(Collectors.toSet());
+  // the total count is the number of alternatives of reachable choices (e.g., as stored in a
+  // compiled grammar)
+  public AlternativeCoverage(final IndexedGrammarGraph indexedGraph, final int totalCount) {
+    this.indexedGraph = indexedGraph;
+    this.totalCount = totalCount;
+
+    final int numberOfAlternatives = indexedGraph.numberOfAlternatives();
+    this.covered = new AtomicLongArray((numberOfAlternatives + BITS_PER_WORD - 1) / BITS_PER_WORD);
+    this.coveredCount = new AtomicInteger(0);
+    this.epoch = new AtomicInteger(0);
+  }
 
+  private static final int countReachableAlternatives(final IndexedGrammarGraph indexedGraph) {
     final Map<GrammarGraphNode<?,?>, Boolean> reachable =
-        ReachableComputation.computeReachable(grammarGraph, false);
+        GrammarAnalysis.forGrammarGraph(indexedGraph.getGrammarGraph()).getReachable(false);
 
-    final Iterator<Alternative> allAlternativesIterator = allAlternatives.iterator();
-    while (allAlternativesIterator.hasNext()) {
-      final Alternative alternative = allAlternativesIterator.next();
-      final Choice choice = alternative.getSource();
+    int totalCount = 0;
 
-      assert (reachable.containsKey(choice));
-      if (!reachable.get(choice)) {
-        allAlternativesIterator.remove();
+    for (int choice = 0; choice < indexedGraph.numberOfChoices(); ++choice) {
+      assert (reachable.containsKey(indexedGraph.getChoice(choice)));
+
+      // alternatives of unreachable choices can not be covered and are thus not counted
+      if (reachable.get(indexedGraph.getChoice(choice))) {
+        totalCount += indexedGraph.getAlternatives(choice).length;
       }
     }
 
-    return allAlternatives;
+    return totalCount;
   }
 
   public final void covered(final Alternative alternative) {
-    this.covered.add(alternative);
+    covered(this.indexedGraph.getId(alternative));
+  }
+
+  public final void covered(final int index) {
+    final int word = index / BITS_PER_WORD;
+    final long mask = 1L << (index % BITS_PER_WORD);
+
+    while (true) {
+      final long bits = this.covered.get(word);
+
+      if ((bits & mask) != 0) {
+        // already covered
+        return;
+      }
+
+      if (this.covered.compareAndSet(word, bits, bits | mask)) {
+        this.coveredCount.incrementAndGet();
+        return;
+      }
+    }
   }
 
   public final boolean isCovered(final Alternative alternative) {
-    return this.covered.contains(alternative);
+    return isCovered(this.indexedGraph.getId(alternative));
+  }
+
+  public final boolean isCovered(final int index) {
+    final int word = index / BITS_PER_WORD;
+    final long mask = 1L << (index % BITS_PER_WORD);
+
+    return (this.covered.get(word) & mask) != 0;
   }
 
   public final int totalCount() {
-    return this.allAlternatives.size();
+    return this.totalCount;
   }
 
   public final int coveredCount() {
-    return this.covered.size();
+    return this.coveredCount.get();
   }
 
   public final int missingCount() {
@@ -74,8 +114,22 @@ public final class AlternativeCoverage {
     return missingCount() == 0;
   }
 
+  // as long as the epoch does not change, alternatives are never uncovered again
+  public final int getEpoch() {
+    return this.epoch.get();
+  }
+
   public final void reset() {
-    this.covered.clear();
+    for (int word = 0; word < this.covered.length(); ++word) {
+      // only subtract the bits that have actually been cleared (other threads may concurrently
+      // mark further alternatives as covered)
+      final long bits = this.covered.getAndSet(word, 0L);
+      this.coveredCount.addAndGet(-Long.bitCount(bits));
+    }
+
+    // only after the bits have been cleared (otherwise, a concurrent reader could observe the new
+    // epoch together with bits that are cleared afterwards)
+    this.epoch.incrementAndGet();
   }
 
 }
@@ -2,26 +2,36 @@ package i2.act.fuzzer;
 
 import i2.act.coverage.AlternativeCoverage;
 import i2.act.fuzzer.selection.SelectionStrategy;
+import i2.act.fuzzer.selection.ViableAlternatives;
 import i2.act.fuzzer.tokens.TokenGenerator;
 import i2.act.grammargraph.GrammarGraph;
 import i2.act.grammargraph.GrammarGraphEdge.Alternative;
-import i2.act.grammargraph.GrammarGraphEdge.Element;
 import i2.act.grammargraph.GrammarGraphEdge.Element.Quantifier;
-import i2.act.grammargraph.GrammarGraphNode;
-import i2.act.grammargraph.GrammarGraphNode.Choice;
-import i2.act.grammargraph.properties.MinHeightComputation;
-import i2.act.peg.symbols.LexerSymbol;
+import i2.act.grammargraph.IndexedGrammarGraph;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
 public abstract class Fuzzer<R> {
 
+  // marks a frame whose current element has not been started yet (i.e., the callback for the
+  // quantifier has not been called yet)
+  private static final int NOT_STARTED = -1;
+
+  // thrown (without a stack trace) to unwind the generation engine if a program is abandoned
+  private static final class BudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BudgetExceededException() {
+      super("generation budget exceeded", null, false, false);
+    }
+
+  }
+
   protected final GrammarGraph grammarGraph;
+  protected final IndexedGrammarGraph indexedGraph;
   protected final int maxHeight;
 
-  protected final Map<GrammarGraphNode<?,?>, Integer> minHeights;
   protected final int minMaxHeight;
 
   protected final TokenGenerator tokenGenerator;
@@ -29,10 +39,44 @@ public abstract class Fuzzer<R> {
 
   protected final AlternativeCoverage coverage;
 
+  // indexed by choice and height; heights beyond the end of a row use its last entry
+  private final ViableAlternatives[][] viableAlternatives;
+
+  private GenerationBudget budget = GenerationBudget.NONE;
+
+  // size of the program that is currently generated
+  private long numberOfTokens;
+  private long numberOfNodes;
+  private long numberOfCharacters;
+
+  // set once the budget is exceeded (with the 'COMPLETE' policy)
+  private boolean completeMinimally;
+
+  // set if the last program has been abandoned (with the 'ABANDON' policy)
+  private boolean abandoned;
+
+  // explicit stack of the generation engine (one frame per expanded non-terminal choice); the
+  // stack is reused for all programs generated by this fuzzer
+  private int stackSize = 0;
+  private int[][] frameElements = new int[16][];
+  private int[] frameElementIndex = new int[16];
+  private int[] frameCount = new int[16];
+  private int[] frameChildHeight = new int[16];
+  private Object[] frameNode = new Object[16];
+  private Object[] frameQuantifierNode = new Object[16];
+
   protected Fuzzer(final GrammarGraph grammarGraph, final int maxHeight,
       final TokenGenerator tokenGenerator, final SelectionStrategy selectionStrategy,
       final AlternativeCoverage coverage) {
-    this.grammarGraph = grammarGraph;
+    this(IndexedGrammarGraph.fromGrammarGraph(grammarGraph), maxHeight, tokenGenerator,
+        selectionStrategy, coverage);
+  }
+
+  protected Fuzzer(final IndexedGrammarGraph indexedGraph, final int maxHeight,
+      final TokenGenerator tokenGenerator, final SelectionStrategy selectionStrategy,
+      final AlternativeCoverage coverage) {
+    this.grammarGraph = indexedGraph.getGrammarGraph();
+    this.indexedGraph = indexedGraph;
     this.maxHeight = maxHeight;
 
     this.tokenGenerator = tokenGenerator;
@@ -40,55 +84,140 @@ public abstract class Fuzzer<R> {
 
     this.coverage = coverage;
 
-    this.minHeights = MinHeightComputation.computeMinHeights(grammarGraph);
-
-    assert (this.minHeights.containsKey(grammarGraph.getRootNode()));
-    this.minMaxHeight = this.minHeights.get(grammarGraph.getRootNode());
+    this.minMaxHeight = indexedGraph.getChoiceMinHeight(indexedGraph.getRootChoice());
 
     if (this.maxHeight < this.minMaxHeight) {
       throw new RuntimeException(String.format(
           "maxHeight too small (the given grammar requires a maxHeight of at least %d)",
           this.minMaxHeight));
     }
+
+    this.viableAlternatives = computeViableAlternatives(indexedGraph);
   }
 
-  public abstract R generate();
+  private static final ViableAlternatives[][] computeViableAlternatives(
+      final IndexedGrammarGraph indexedGraph) {
+    final ViableAlternatives[][] viableAlternatives =
+        new ViableAlternatives[indexedGraph.numberOfChoices()][];
 
-  protected final boolean isTerminal(final Choice choice) {
-    return choice.getGrammarSymbol() instanceof LexerSymbol;
-  }
+    for (int choice = 0; choice < indexedGraph.numberOfChoices(); ++choice) {
+      final int[] alternatives = indexedGraph.getAlternatives(choice);
+
+      // for larger heights, all alternatives with a finite minimum height are viable
+      int maxMinHeight = 0;
+
+      for (final int alternative : alternatives) {
+        final int minHeight = indexedGraph.getAlternativeMinHeight(alternative);
+
+        if (minHeight != IndexedGrammarGraph.UNKNOWN) {
+          maxMinHeight = Math.max(maxMinHeight, minHeight);
+        }
+      }
+
+      final ViableAlternatives[] row = new ViableAlternatives[maxMinHeight + 1];
+
+      for (int height = 0; height <= maxMinHeight; ++height) {
+        final int[] viable = new int[alternatives.length];
+        int numberOfViable = 0;
 
-  protected final List<Alternative> viableAlternatives(final Choice choice, final int childHeight) {
-    final List<Alternative> viableAlternatives = new ArrayList<>();
+        for (final int alternative : alternatives) {
+          if (indexedGraph.getAlternativeMinHeight(alternative) <= height) {
+            viable[numberOfViable++] = alternative;
+          }
+        }
 
-    for (final Alternative alternative : choice.getSuccessorEdges()) {
-      assert (this.minHeights.containsKey(alternative.getTarget()));
-      if (this.minHeights.get(alternative.getTarget()) <= childHeight) {
-        viableAlternatives.add(alternative);
+        if (numberOfViable == 0) {
+          row[height] = null;
+        } else if (height > 0 && row[height - 1] != null
+            && row[height - 1].size() == numberOfViable) {
+          // the set of viable alternatives only grows with the height
+          row[height] = row[height - 1];
+        } else {
+          row[height] =
+              new ViableAlternatives(indexedGraph, Arrays.copyOf(viable, numberOfViable));
+        }
       }
+
+      viableAlternatives[choice] = row;
     }
 
-    assert (!viableAlternatives.isEmpty());
     return viableAlternatives;
   }
 
-  protected final Alternative chooseAlternative(final List<Alternative> alternatives,
+  // returns 'null' if the program has been abandoned because it exceeded the generation budget
+  public abstract R generate();
+
+  public final void setBudget(final GenerationBudget budget) {
+    this.budget = budget;
+  }
+
+  public final GenerationBudget getBudget() {
+    return this.budget;
+  }
+
+  public final boolean wasAbandoned() {
+    return this.abandoned;
+  }
+
+  protected final boolean isTerminal(final int choice) {
+    return this.indexedGraph.isTerminal(choice);
+  }
+
+  protected final ViableAlternatives viableAlternatives(final int choice,
       final int childHeight) {
-    return this.selectionStrategy.chooseAlternative(alternatives, childHeight);
+    assert (childHeight >= 0);
+
+    final ViableAlternatives[] row = this.viableAlternatives[choice];
+    final ViableAlternatives viableAlternatives = row[Math.min(childHeight, row.length - 1)];
+
+    assert (viableAlternatives != null);
+    return viableAlternatives;
+  }
+
+  protected final int chooseAlternative(final int choice, final int childHeight) {
+    final ViableAlternatives viableAlternatives = viableAlternatives(choice, childHeight);
+
+    if (this.completeMinimally) {
+      return smallestAlternative(viableAlternatives);
+    }
+
+    final Alternative chosen =
+        this.selectionStrategy.chooseAlternative(viableAlternatives, childHeight);
+
+    // constant time (the strategies may also choose from other lists than the viable alternatives,
+    // e.g., from the uncovered ones)
+    return this.indexedGraph.getId(chosen);
+  }
+
+  private final int smallestAlternative(final ViableAlternatives viableAlternatives) {
+    int smallestAlternative = -1;
+    int smallestMinSize = Integer.MAX_VALUE;
+
+    for (int index = 0; index < viableAlternatives.size(); ++index) {
+      final int id = viableAlternatives.getId(index);
+      final int minSize = this.indexedGraph.getAlternativeMinSize(id);
+
+      if (smallestAlternative == -1 || minSize < smallestMinSize) {
+        smallestAlternative = id;
+        smallestMinSize = minSize;
+      }
+    }
+
+    assert (smallestAlternative >= 0);
+    return smallestAlternative;
   }
 
-  protected final void track(final Alternative chosen) {
+  protected final void track(final int chosen) {
     if (this.coverage != null) {
       this.coverage.covered(chosen);
     }
   }
 
-  protected final boolean generateMoreElements(final Element element, final int count,
+  protected final boolean generateMoreElements(final int element, final int count,
       final int childHeight) {
-    final Quantifier quantifier = element.getQuantifier();
+    final Quantifier quantifier = this.indexedGraph.getElementQuantifier(element);
 
-    assert (this.minHeights.containsKey(element.getTarget()));
-    if (this.minHeights.get(element.getTarget()) > childHeight) {
+    if (this.indexedGraph.getElementMinHeight(element) > childHeight) {
       assert (quantifier != Quantifier.QUANT_NONE
           && quantifier != Quantifier.QUANT_PLUS);
       assert (count == 0);
@@ -112,19 +241,183 @@ public abstract class Fuzzer<R> {
       return false;
     }
 
-    return this.selectionStrategy.generateMoreElements(element, count, childHeight);
+    if (this.completeMinimally) {
+      return false;
+    }
+
+    return this.selectionStrategy.generateMoreElements(
+        this.indexedGraph.getElement(element), count, childHeight);
   }
 
-  protected final int childHeight(final Choice choice, final int maxHeight) {
+  protected final int childHeight(final int choice, final int maxHeight) {
     return (isProduction(choice)) ? (maxHeight - 1) : (maxHeight);
   }
 
-  protected final List<Element> elementsOf(final Alternative alternative) {
-    return alternative.getTarget().getSuccessorEdges();
+  protected final int[] elementsOf(final int alternative) {
+    return this.indexedGraph.getElements(this.indexedGraph.getAlternativeTarget(alternative));
+  }
+
+  protected final boolean isProduction(final int choice) {
+    return this.indexedGraph.isProduction(choice);
+  }
+
+  // has to be called by the subclasses for each generated token
+  protected final void countCharacters(final int numberOfCharacters) {
+    this.numberOfCharacters += numberOfCharacters;
+    checkBudget();
   }
 
-  protected final boolean isProduction(final Choice choice) {
-    return choice.hasGrammarSymbol() && choice.getGrammarSymbol().getProduction() != null;
+  private final void checkBudget() {
+    if (this.completeMinimally
+        || !this.budget.isExceeded(this.numberOfTokens, this.numberOfNodes,
+            this.numberOfCharacters)) {
+      return;
+    }
+
+    if (this.budget.getPolicy() == GenerationBudget.Policy.ABANDON) {
+      throw new BudgetExceededException();
+    } else {
+      assert (this.budget.getPolicy() == GenerationBudget.Policy.COMPLETE);
+      this.completeMinimally = true;
+    }
+  }
+
+  // ===============================================================================================
+
+  // callbacks of the generation engine; the 'N' values are passed from a parent to its children
+  // (e.g., the node that the children should be added to)
+  protected interface Expansion<N> {
+
+    public N terminal(final int choice, final N parent);
+
+    public N nonTerminal(final int choice, final N parent);
+
+    public N quantifier(final int element, final N node);
+
+    public N item(final N quantifierNode, final int element);
+
+  }
+
+  // generates a program for the given choice without Java recursion, i.e., the maximum height is
+  // not limited by the stack size of the current thread; the engine makes the same decisions (in
+  // the same order) as a straightforward recursive implementation would, and returns the value
+  // that the callbacks return for the given choice (or 'null' if the program is abandoned)
+  protected final <N> N expand(final int choice, final int maxHeight, final N parent,
+      final Expansion<N> expansion) {
+    assert (this.stackSize == 0);
+
+    this.numberOfTokens = 0;
+    this.numberOfNodes = 0;
+    this.numberOfCharacters = 0;
+    this.completeMinimally = false;
+    this.abandoned = false;
+
+    try {
+      final N result = enter(choice, maxHeight, parent, expansion);
+
+      while (this.stackSize > 0) {
+        final int top = this.stackSize - 1;
+
+        final int[] elements = this.frameElements[top];
+        final int elementIndex = this.frameElementIndex[top];
+
+        if (elementIndex >= elements.length) {
+          // all elements of the chosen alternative have been generated
+          this.frameNode[top] = null;
+          this.frameQuantifierNode[top] = null;
+          --this.stackSize;
+          continue;
+        }
+
+        final int element = elements[elementIndex];
+        final int count = this.frameCount[top];
+
+        if (count == NOT_STARTED) {
+          @SuppressWarnings("unchecked")
+          final N node = (N) this.frameNode[top];
+
+          this.frameQuantifierNode[top] = expansion.quantifier(element, node);
+          this.frameCount[top] = 0;
+          continue;
+        }
+
+        @SuppressWarnings("unchecked")
+        final N quantifierNode = (N) this.frameQuantifierNode[top];
+        final int childHeight = this.frameChildHeight[top];
+
+        if (generateMoreElements(element, count, childHeight)) {
+          this.frameCount[top] = count + 1;
+
+          final N itemNode = expansion.item(quantifierNode, element);
+          enter(this.indexedGraph.getElementTarget(element), childHeight, itemNode, expansion);
+        } else {
+          this.frameElementIndex[top] = elementIndex + 1;
+          this.frameCount[top] = NOT_STARTED;
+          this.frameQuantifierNode[top] = null;
+        }
+      }
+
+      return result;
+    } catch (final BudgetExceededException exception) {
+      this.abandoned = true;
+      return null;
+    } finally {
+      // do not keep any nodes alive (and leave a consistent stack if a callback failed)
+      while (this.stackSize > 0) {
+        --this.stackSize;
+        this.frameNode[this.stackSize] = null;
+        this.frameQuantifierNode[this.stackSize] = null;
+      }
+    }
+  }
+
+  private final <N> N enter(final int choice, final int maxHeight, final N parent,
+      final Expansion<N> expansion) {
+    if (isTerminal(choice)) {
+      ++this.numberOfTokens;
+      ++this.numberOfNodes;
+      checkBudget();
+
+      return expansion.terminal(choice, parent);
+    }
+
+    if (isProduction(choice)) {
+      ++this.numberOfNodes;
+      checkBudget();
+    }
+
+    final N node = expansion.nonTerminal(choice, parent);
+
+    final int childHeight = childHeight(choice, maxHeight);
+    final int chosen = chooseAlternative(choice, childHeight);
+
+    track(chosen);
+
+    push(elementsOf(chosen), childHeight, node);
+
+    return node;
+  }
+
+  private final void push(final int[] elements, final int childHeight, final Object node) {
+    if (this.stackSize == this.frameElements.length) {
+      final int capacity = 2 * this.stackSize;
+
+      this.frameElements = Arrays.copyOf(this.frameElements, capacity);
+      this.frameElementIndex = Arrays.copyOf(this.frameElementIndex, capacity);
+      this.frameCount = Arrays.copyOf(this.frameCount, capacity);
+      this.frameChildHeight = Arrays.copyOf(this.frameChildHeight, capacity);
+      this.frameNode = Arrays.copyOf(this.frameNode, capacity);
+      this.frameQuantifierNode = Arrays.copyOf(this.frameQuantifierNode, capacity);
+    }
+
+    final int top = this.stackSize++;
+
+    this.frameElements[top] = elements;
+    this.frameElementIndex[top] = 0;
+    this.frameCount[top] = NOT_STARTED;
+    this.frameChildHeight[top] = childHeight;
+    this.frameNode[top] = node;
+    this.frameQuantifierNode[top] = null;
   }
 
 }
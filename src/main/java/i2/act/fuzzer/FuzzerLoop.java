@@ -2,8 +2,17 @@ package i2.act.fuzzer;
 
 import i2.act.coverage.AlternativeCoverage;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 public abstract class FuzzerLoop<R> implements Iterator<R>, Iterable<R> {
 
@@ -11,6 +20,10 @@ public abstract class FuzzerLoop<R> implements Iterator<R>, Iterable<R> {
 
   public static final int INFINITE = -1;
 
+  // the loops give up if this many attempts in a row fail (e.g., if the generation budget does not
+  // suffice for the programs that the grammar allows)
+  public static final int MAX_CONSECUTIVE_FAILED_ATTEMPTS = 10000;
+
   // ~~ fixed count ~~
 
   public static final <R> FuzzerLoop<R> fixedCount(final int count, final Fuzzer<R> fuzzer) {
@@ -33,6 +46,41 @@ public abstract class FuzzerLoop<R> implements Iterator<R>, Iterable<R> {
     return fixedCount(INFINITE, fuzzer, beforeEachAttempt);
   }
 
+  // ~~ parallel ~~
+
+  // each worker thread obtains its own generator function from the given factory; the generator
+  // function is called with the (1-based) number of the attempt and the results are returned in
+  // the order of the attempts (independent of the number of threads); if the generator function
+  // returns 'null' (e.g., for an abandoned program), the attempt counts as a failed one
+  public static final <R> FuzzerLoop<R> parallel(final int count, final int numberOfThreads,
+      final Supplier<IntFunction<R>> workerFactory) {
+    return new ParallelFuzzerLoop<R>(count, numberOfThreads, workerFactory);
+  }
+
+  // ~~ map ~~
+
+  public static final <R, S> FuzzerLoop<S> map(final FuzzerLoop<R> baseLoop,
+      final Function<R, S> function) {
+    return new FuzzerLoop<S>() {
+
+      @Override
+      public final int numberOfAttempts() {
+        return baseLoop.numberOfAttempts();
+      }
+
+      @Override
+      public final boolean hasNext() {
+        return baseLoop.hasNext();
+      }
+
+      @Override
+      protected final S generateNext() {
+        return function.apply(baseLoop.next());
+      }
+
+    };
+  }
+
   // ~~ only additional coverage ~~
 
   public static final <R> FuzzerLoop<R> onlyAdditionalCoverage(final AlternativeCoverage coverage,
@@ -89,17 +137,29 @@ public abstract class FuzzerLoop<R> implements Iterator<R>, Iterable<R> {
       return this.numberOfAttempts;
     }
 
+    // abandoned programs count as failed attempts
     @Override
     protected final R generateNext() {
       R next = null;
+      int numberOfFailedAttempts = 0;
 
-      ++this.numberOfAttempts;
+      while (next == null) {
+        if (numberOfFailedAttempts == MAX_CONSECUTIVE_FAILED_ATTEMPTS) {
+          throw tooManyFailedAttempts();
+        }
 
-      if (this.beforeEachAttempt != null) {
-        this.beforeEachAttempt.accept(this);
-      }
+        ++this.numberOfAttempts;
 
-      next = this.fuzzer.generate();
+        if (this.beforeEachAttempt != null) {
+          this.beforeEachAttempt.accept(this);
+        }
+
+        next = this.fuzzer.generate();
+
+        if (next == null) {
+          ++numberOfFailedAttempts;
+        }
+      }
 
       return next;
     }
@@ -111,6 +171,106 @@ public abstract class FuzzerLoop<R> implements Iterator<R>, Iterable<R> {
 
   }
 
+  private static final class ParallelFuzzerLoop<R> extends FuzzerLoop<R> {
+
+    private final int count;
+
+    private final ExecutorService executor;
+    private final ThreadLocal<IntFunction<R>> workers;
+
+    private final Deque<Future<R>> pendingAttempts;
+    private final int maxPendingAttempts;
+
+    private int numberOfSubmittedAttempts;
+    private int numberOfFailedAttempts;
+    private int numberOfConsecutiveFailedAttempts;
+    private int numberOfAttempts;
+
+    public ParallelFuzzerLoop(final int count, final int numberOfThreads,
+        final Supplier<IntFunction<R>> workerFactory) {
+      this.count = count;
+
+      this.executor = Executors.newFixedThreadPool(numberOfThreads, (runnable) -> {
+        final Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+      });
+      this.workers = ThreadLocal.withInitial(workerFactory);
+
+      // limit the number of attempts that are submitted in advance (otherwise, the results of an
+      // infinite loop would pile up in memory)
+      this.pendingAttempts = new ArrayDeque<>();
+      this.maxPendingAttempts = 2 * numberOfThreads;
+
+      this.numberOfSubmittedAttempts = 0;
+      this.numberOfFailedAttempts = 0;
+      this.numberOfConsecutiveFailedAttempts = 0;
+      this.numberOfAttempts = 0;
+    }
+
+    @Override
+    public final int numberOfAttempts() {
+      return this.numberOfAttempts;
+    }
+
+    @Override
+    protected final R generateNext() {
+      while (true) {
+        submitAttempts();
+
+        assert (!this.pendingAttempts.isEmpty());
+        final Future<R> next = this.pendingAttempts.removeFirst();
+
+        ++this.numberOfAttempts;
+
+        final R program;
+        try {
+          program = next.get();
+        } catch (final ExecutionException exception) {
+          throw new RuntimeException("program generation failed", exception.getCause());
+        } catch (final InterruptedException exception) {
+          throw new RuntimeException("program generation was interrupted", exception);
+        }
+
+        if (program != null) {
+          this.numberOfConsecutiveFailedAttempts = 0;
+          return program;
+        }
+
+        ++this.numberOfFailedAttempts;
+
+        if (++this.numberOfConsecutiveFailedAttempts == MAX_CONSECUTIVE_FAILED_ATTEMPTS) {
+          this.executor.shutdownNow();
+          throw tooManyFailedAttempts();
+        }
+      }
+    }
+
+    // failed attempts have to be replaced by additional ones
+    private final void submitAttempts() {
+      while (this.pendingAttempts.size() < this.maxPendingAttempts
+          && (this.count == INFINITE
+              || this.numberOfSubmittedAttempts - this.numberOfFailedAttempts < this.count)) {
+        final int attempt = ++this.numberOfSubmittedAttempts;
+
+        this.pendingAttempts.addLast(
+            this.executor.submit(() -> this.workers.get().apply(attempt)));
+      }
+    }
+
+    @Override
+    public final boolean hasNext() {
+      final boolean hasNext = this.count == INFINITE || this.numberOfPrograms < this.count;
+
+      if (!hasNext) {
+        this.executor.shutdown();
+      }
+
+      return hasNext;
+    }
+
+  }
+
   private abstract static class FilterFuzzerLoop<R> extends FuzzerLoop<R> {
 
     protected final FuzzerLoop<R> baseLoop;
@@ -166,6 +326,12 @@ public abstract class FuzzerLoop<R> implements Iterator<R>, Iterable<R> {
 
   }
 
+  private static final RuntimeException tooManyFailedAttempts() {
+    return new RuntimeException(String.format(
+        "no program could be generated in %d consecutive attempts (the generation budget might "
+        + "be too small for the given grammar)", MAX_CONSECUTIVE_FAILED_ATTEMPTS));
+  }
+
   // ===============================================================================================
 
   protected int numberOfPrograms;
@@ -0,0 +1,79 @@
+package i2.act.fuzzer;
+
+// limits the size of each generated program (in tokens, syntax tree nodes, and characters of the
+// token values); the limits are checked while the program is generated, i.e., the generation of a
+// huge program is stopped as soon as one of the limits is reached
+public final class GenerationBudget {
+
+  public static final long UNLIMITED = Long.MAX_VALUE;
+
+  public static enum Policy {
+
+    // the program is completed with the smallest viable alternatives and without further elements
+    // of quantified sub-rules (thus, the final program may exceed the budget by this completion)
+    COMPLETE,
+
+    // the program is discarded (and the attempt counts as a failed one)
+    ABANDON;
+
+    public final String getName() {
+      return name().toLowerCase();
+    }
+
+    public static final Policy fromName(final String name) {
+      for (final Policy policy : values()) {
+        if (policy.getName().equalsIgnoreCase(name)) {
+          return policy;
+        }
+      }
+
+      throw new IllegalArgumentException(String.format("unknown budget policy: '%s'", name));
+    }
+
+  }
+
+  public static final Policy DEFAULT_POLICY = Policy.COMPLETE;
+
+  public static final GenerationBudget NONE =
+      new GenerationBudget(UNLIMITED, UNLIMITED, UNLIMITED, DEFAULT_POLICY);
+
+  private final long maxTokens;
+  private final long maxNodes;
+  private final long maxCharacters;
+
+  private final Policy policy;
+
+  public GenerationBudget(final long maxTokens, final long maxNodes, final long maxCharacters,
+      final Policy policy) {
+    this.maxTokens = maxTokens;
+    this.maxNodes = maxNodes;
+    this.maxCharacters = maxCharacters;
+    this.policy = policy;
+  }
+
+  public final long getMaxTokens() {
+    return this.maxTokens;
+  }
+
+  public final long getMaxNodes() {
+    return this.maxNodes;
+  }
+
+  public final long getMaxCharacters() {
+    return this.maxCharacters;
+  }
+
+  public final Policy getPolicy() {
+    return this.policy;
+  }
+
+  public final boolean isUnlimited() {
+    return this.maxTokens == UNLIMITED && this.maxNodes == UNLIMITED
+        && this.maxCharacters == UNLIMITED;
+  }
+
+  public final boolean isExceeded(final long tokens, final long nodes, final long characters) {
+    return tokens > this.maxTokens || nodes > this.maxNodes || characters > this.maxCharacters;
+  }
+
+}
@@ -4,14 +4,14 @@ import i2.act.coverage.AlternativeCoverage;
 import i2.act.fuzzer.selection.SelectionStrategy;
 import i2.act.fuzzer.tokens.TokenGenerator;
 import i2.act.grammargraph.GrammarGraph;
-import i2.act.grammargraph.GrammarGraphEdge.Alternative;
-import i2.act.grammargraph.GrammarGraphEdge.Element;
 import i2.act.grammargraph.GrammarGraphNode.Choice;
+import i2.act.grammargraph.IndexedGrammarGraph;
 import i2.act.packrat.Token;
 import i2.act.peg.symbols.LexerSymbol;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public final class TokenStreamFuzzer extends Fuzzer<List<Token>> {
 
@@ -26,39 +26,69 @@ public final class TokenStreamFuzzer extends Fuzzer<List<Token>> {
     super(grammarGraph, maxHeight, tokenGenerator, selectionStrategy, coverage);
   }
 
+  public TokenStreamFuzzer(final IndexedGrammarGraph indexedGraph, final int maxHeight,
+      final TokenGenerator tokenGenerator, final SelectionStrategy selectionStrategy,
+      final AlternativeCoverage coverage) {
+    super(indexedGraph, maxHeight, tokenGenerator, selectionStrategy, coverage);
+  }
+
   @Override
   public final List<Token> generate() {
-    return generate(this.grammarGraph.getRootNode(), this.maxHeight, new ArrayList<Token>());
-  }
+    final List<Token> tokens = new ArrayList<>();
 
-  private final List<Token> generate(final Choice choice, final int maxHeight,
-      final List<Token> tokens) {
-    if (isTerminal(choice)) {
-      tokens.add(createToken(choice));
-      return tokens;
+    if (!generate(tokens::add)) {
+      return null;
     }
 
-    final int childHeight = childHeight(choice, maxHeight);
-    final Alternative chosen =
-        chooseAlternative(viableAlternatives(choice, childHeight), childHeight);
+    return tokens;
+  }
+
+  // passes each token to 'consumer' as soon as it is generated (i.e., without keeping the tokens);
+  // returns 'false' if the program has been abandoned (after some tokens may have been passed on)
+  public final boolean generate(final Consumer<Token> consumer) {
+    this.tokenGenerator.reset();
+    this.selectionStrategy.reset();
 
-    track(chosen);
+    expand(this.indexedGraph.getRootChoice(), this.maxHeight, null, new Expansion<Void>() {
 
-    for (final Element element : elementsOf(chosen)) {
-      for (int count = 0; generateMoreElements(element, count, childHeight); ++count) {
-        generate(element.getTarget(), childHeight, tokens);
+      @Override
+      public final Void terminal(final int choice, final Void parent) {
+        consumer.accept(createToken(choice));
+        return null;
       }
-    }
 
-    return tokens;
+      @Override
+      public final Void nonTerminal(final int choice, final Void parent) {
+        return null;
+      }
+
+      @Override
+      public final Void quantifier(final int element, final Void node) {
+        return null;
+      }
+
+      @Override
+      public final Void item(final Void quantifierNode, final int element) {
+        return null;
+      }
+
+    });
+
+    return !wasAbandoned();
   }
 
-  private final Token createToken(final Choice choice) {
+  private final Token createToken(final int choiceId) {
+    final Choice choice = this.indexedGraph.getChoice(choiceId);
+
     assert (choice.hasGrammarSymbol());
     assert (choice.getGrammarSymbol() instanceof LexerSymbol);
 
     final LexerSymbol symbol = (LexerSymbol) choice.getGrammarSymbol();
-    return this.tokenGenerator.createToken(symbol);
+    final Token token = this.tokenGenerator.createToken(symbol);
+
+    countCharacters(token.getValue().length());
+
+    return token;
   }
 
 }
@@ -4,9 +4,9 @@ import i2.act.coverage.AlternativeCoverage;
 import i2.act.fuzzer.selection.SelectionStrategy;
 import i2.act.fuzzer.tokens.TokenGenerator;
 import i2.act.grammargraph.GrammarGraph;
-import i2.act.grammargraph.GrammarGraphEdge.Alternative;
-import i2.act.grammargraph.GrammarGraphEdge.Element;
+import i2.act.grammargraph.GrammarGraphEdge.Element.Quantifier;
 import i2.act.grammargraph.GrammarGraphNode.Choice;
+import i2.act.grammargraph.IndexedGrammarGraph;
 import i2.act.packrat.Token;
 import i2.act.packrat.cst.Node;
 import i2.act.packrat.cst.NonTerminalNode;
@@ -18,6 +18,31 @@ import java.util.ArrayList;
 
 public final class TreeFuzzer extends Fuzzer<Node<?>> {
 
+  private final Expansion<Node<?>> expansion = new Expansion<Node<?>>() {
+
+    @Override
+    public final Node<?> terminal(final int choice, final Node<?> parent) {
+      final Node<?> node = createTerminalNode(choice, parent);
+      return (parent == null) ? (node) : (parent);
+    }
+
+    @Override
+    public final Node<?> nonTerminal(final int choice, final Node<?> parent) {
+      return createNonTerminalNode(choice, parent);
+    }
+
+    @Override
+    public final Node<?> quantifier(final int element, final Node<?> node) {
+      return createQuantifierNode(element, node);
+    }
+
+    @Override
+    public final Node<?> item(final Node<?> quantifierNode, final int element) {
+      return createItemNode(quantifierNode, element);
+    }
+
+  };
+
   public TreeFuzzer(final GrammarGraph grammarGraph, final int maxHeight,
       final TokenGenerator tokenGenerator, final SelectionStrategy selectionStrategy) {
     this(grammarGraph, maxHeight, tokenGenerator, selectionStrategy, null);
@@ -29,41 +54,28 @@ public final class TreeFuzzer extends Fuzzer<Node<?>> {
     super(grammarGraph, maxHeight, tokenGenerator, selectionStrategy, coverage);
   }
 
+  public TreeFuzzer(final IndexedGrammarGraph indexedGraph, final int maxHeight,
+      final TokenGenerator tokenGenerator, final SelectionStrategy selectionStrategy,
+      final AlternativeCoverage coverage) {
+    super(indexedGraph, maxHeight, tokenGenerator, selectionStrategy, coverage);
+  }
+
   @Override
   public final Node<?> generate() {
-    return generate(this.grammarGraph.getRootNode(), this.maxHeight, null);
+    this.tokenGenerator.reset();
+    this.selectionStrategy.reset();
+    return expand(this.indexedGraph.getRootChoice(), this.maxHeight, null, this.expansion);
   }
 
-  private final Node<?> generate(final Choice choice, final int maxHeight, final Node<?> parent) {
-    if (isTerminal(choice)) {
-      final Node<?> node = createTerminalNode(choice, parent);
-      return (parent == null) ? (node) : (parent);
-    }
-
-    final Node<?> node = createNonTerminalNode(choice, parent);
-
-    final int childHeight = childHeight(choice, maxHeight);
-    final Alternative chosen =
-        chooseAlternative(viableAlternatives(choice, childHeight), childHeight);
-
-    track(chosen);
+  private final Node<?> createTerminalNode(final int choiceId, final Node<?> parent) {
+    final Choice choice = this.indexedGraph.getChoice(choiceId);
 
-    for (final Element element : elementsOf(chosen)) {
-      final Node<?> quantifierNode = createQuantifierNode(element, node);
-      for (int count = 0; generateMoreElements(element, count, childHeight); ++count) {
-        generate(element.getTarget(), childHeight, createItemNode(quantifierNode, element));
-      }
-    }
-
-    return (parent == null) ? (node) : (parent);
-  }
-
-  private final Node<?> createTerminalNode(final Choice choice, final Node<?> parent) {
     assert (choice.hasGrammarSymbol());
     assert (choice.getGrammarSymbol() instanceof LexerSymbol);
 
     final LexerSymbol symbol = (LexerSymbol) choice.getGrammarSymbol();
     final Token token = this.tokenGenerator.createToken(symbol);
+    countCharacters(token.getValue().length());
 
     final Node<?> node = new TerminalNode(token);
 
@@ -74,8 +86,10 @@ public final class TreeFuzzer extends Fuzzer<Node<?>> {
     return node;
   }
 
-  private final Node<?> createNonTerminalNode(final Choice choice, final Node<?> parent) {
-    if (isProduction(choice)) {
+  private final Node<?> createNonTerminalNode(final int choiceId, final Node<?> parent) {
+    if (isProduction(choiceId)) {
+      final Choice choice = this.indexedGraph.getChoice(choiceId);
+
       assert (choice.hasGrammarSymbol());
       assert (choice.getGrammarSymbol() instanceof ParserSymbol);
 
@@ -93,13 +107,14 @@ public final class TreeFuzzer extends Fuzzer<Node<?>> {
     }
   }
 
-  private final Node<?> createItemNode(final Node<?> parent, final Element element) {
+  private final Node<?> createItemNode(final Node<?> parent, final int element) {
     if (parent != null
         && (parent instanceof NonTerminalNode) && ((NonTerminalNode) parent).isQuantifierNode()) {
       final NonTerminalNode itemNode =
           new NonTerminalNode(ParserSymbol.LIST_ITEM, new ArrayList<>());
 
-      itemNode.setExpectedSymbol(element.getTarget().getGrammarSymbol());
+      final int target = this.indexedGraph.getElementTarget(element);
+      itemNode.setExpectedSymbol(this.indexedGraph.getChoice(target).getGrammarSymbol());
 
       parent.getChildren().add(itemNode);
 
@@ -109,13 +124,15 @@ public final class TreeFuzzer extends Fuzzer<Node<?>> {
     }
   }
 
-  private final Node<?> createQuantifierNode(final Element element, final Node<?> node) {
-    if (element.getQuantifier() == Element.Quantifier.QUANT_NONE) {
+  private final Node<?> createQuantifierNode(final int element, final Node<?> node) {
+    final Quantifier quantifier = this.indexedGraph.getElementQuantifier(element);
+
+    if (quantifier == Quantifier.QUANT_NONE) {
       return node;
     } else {
       final ParserSymbol quantifierSymbol;
       {
-        switch (element.getQuantifier()) {
+        switch (quantifier) {
           case QUANT_OPTIONAL: {
             quantifierSymbol = ParserSymbol.OPTIONAL;
             break;
@@ -130,7 +147,7 @@ public final class TreeFuzzer extends Fuzzer<Node<?>> {
           }
           default: {
             assert (false);
-            throw new RuntimeException("unknown quantifier: " + element.getQuantifier());
+            throw new RuntimeException("unknown quantifier: " + quantifier);
           }
         }
       }
@@ -0,0 +1,92 @@
+package i2.act.fuzzer.selection;
+
+import i2.act.grammargraph.GrammarGraphEdge.Alternative;
+import i2.act.grammargraph.GrammarGraphEdge.Element;
+import i2.act.util.RandomNumberGenerator;
+
+import java.util.List;
+
+// a weighted random selection that uses the alias tables of the viable alternatives, i.e., it draws
+// an alternative in constant time (two random numbers) and without any allocations; in contrast to
+// 'WeightedRandomSelection', each alternative is chosen with a probability of exactly its weight
+// divided by the total weight
+//
+// for other lists of alternatives (e.g., the uncovered alternatives that another strategy passes
+// on), an alternative is chosen via a linear roulette wheel selection with the same probabilities
+public final class AliasSelection implements SelectionStrategy {
+
+  private final RandomNumberGenerator rng;
+
+  public AliasSelection() {
+    this(System.currentTimeMillis());
+  }
+
+  public AliasSelection(final long seed) {
+    this(new RandomNumberGenerator(seed));
+  }
+
+  public AliasSelection(final RandomNumberGenerator rng) {
+    this.rng = rng;
+  }
+
+  @Override
+  public final Alternative chooseAlternative(final List<Alternative> alternatives,
+      final int maxHeight) {
+    assert (!alternatives.isEmpty());
+
+    // handle fast case first
+    if (alternatives.size() == 1) {
+      return alternatives.get(0);
+    }
+
+    if (alternatives instanceof ViableAlternatives) {
+      final ViableAlternatives viableAlternatives = (ViableAlternatives) alternatives;
+
+      final int index = this.rng.nextInt(viableAlternatives.size());
+
+      if (this.rng.nextInt(viableAlternatives.getTotalWeight())
+          < viableAlternatives.getAliasThreshold(index)) {
+        return viableAlternatives.get(index);
+      } else {
+        return viableAlternatives.get(viableAlternatives.getAlias(index));
+      }
+    }
+
+    int totalWeight = 0;
+
+    for (final Alternative alternative : alternatives) {
+      totalWeight += alternative.getWeight();
+    }
+
+    if (totalWeight == 0) {
+      return alternatives.get(this.rng.nextInt(alternatives.size()));
+    }
+
+    final int chosen = this.rng.nextInt(totalWeight);
+    int weightSum = 0;
+
+    for (final Alternative alternative : alternatives) {
+      weightSum += alternative.getWeight();
+
+      if (weightSum > chosen) {
+        return alternative;
+      }
+    }
+
+    assert (false);
+    return null;
+  }
+
+  // a single random number suffices for quantifiers
+  @Override
+  public final boolean generateMoreElements(final Element element, final int count,
+      final int maxHeight) {
+    return this.rng.nextInt(element.getWeight() + 1) != 0;
+  }
+
+  @Override
+  public final void reset() {
+    // nothing to do
+  }
+
+}
@@ -0,0 +1,296 @@
+package i2.act.fuzzer.selection;
+
+import i2.act.grammargraph.GrammarGraphEdge.Element.Quantifier;
+import i2.act.grammargraph.IndexedGrammarGraph;
+import i2.act.grammargraph.properties.MinTokensComputation;
+
+import java.util.Arrays;
+
+// the probabilities of a Boltzmann sampler whose expected program size (in tokens) matches a given
+// target size: each choice and each sequence has a generating function 'G(x)' in which each token
+// counts as a factor 'x' (choices sum up the weighted values of their alternatives, sequences
+// multiply the values of their elements); for a fixed 'x', an alternative is chosen with a
+// probability proportional to its weight times the value of its sequence, and another element of a
+// quantified sub-rule is generated with a probability of the value of the element, which yields an
+// expected program size of 'x * G'(x) / G(x)' for the root choice
+//
+// the expected size grows with 'x' (up to the singularity of the generating functions, beyond
+// which the fixpoint iteration diverges), such that 'x' can be found via bisection
+//
+// additionally, the minimal number of tokens of each choice and sequence is computed (used by the
+// 'BoltzmannSelection' to keep programs below an upper bound)
+public final class BoltzmannModel {
+
+  public static final int UNKNOWN = MinTokensComputation.UNKNOWN;
+
+  private static final int MAX_ITERATIONS = 2000;
+  private static final double EPSILON = 1e-9;
+  private static final double MAX_VALUE = 1e100;
+
+  private static final int SEARCH_STEPS = 64;
+  private static final double MAX_PARAMETER = 1e6;
+
+  private final IndexedGrammarGraph indexedGraph;
+
+  private final int targetSize;
+  private final double parameter;
+  private final double expectedSize;
+
+  // indexed by the ids of the alternatives and elements
+  private final double[] alternativeWeights;
+  private final double[] elementProbabilities;
+
+  // indexed by the ids of the choices and sequences
+  private final int[] choiceMinTokens;
+  private final int[] sequenceMinTokens;
+
+  private BoltzmannModel(final IndexedGrammarGraph indexedGraph, final int targetSize,
+      final double parameter, final double expectedSize, final double[] alternativeWeights,
+      final double[] elementProbabilities, final int[] choiceMinTokens,
+      final int[] sequenceMinTokens) {
+    this.indexedGraph = indexedGraph;
+    this.targetSize = targetSize;
+    this.parameter = parameter;
+    this.expectedSize = expectedSize;
+    this.alternativeWeights = alternativeWeights;
+    this.elementProbabilities = elementProbabilities;
+    this.choiceMinTokens = choiceMinTokens;
+    this.sequenceMinTokens = sequenceMinTokens;
+  }
+
+  public final IndexedGrammarGraph getIndexedGraph() {
+    return this.indexedGraph;
+  }
+
+  public final int getTargetSize() {
+    return this.targetSize;
+  }
+
+  public final double getParameter() {
+    return this.parameter;
+  }
+
+  // may differ from the target size if the grammar does not allow programs of this size
+  public final double getExpectedSize() {
+    return this.expectedSize;
+  }
+
+  public final double getAlternativeWeight(final int alternative) {
+    return this.alternativeWeights[alternative];
+  }
+
+  public final double getElementProbability(final int element) {
+    return this.elementProbabilities[element];
+  }
+
+  public final int getChoiceMinTokens(final int choice) {
+    return this.choiceMinTokens[choice];
+  }
+
+  public final int getSequenceMinTokens(final int sequence) {
+    return this.sequenceMinTokens[sequence];
+  }
+
+  public static final BoltzmannModel forTargetSize(final IndexedGrammarGraph indexedGraph,
+      final int targetSize) {
+    final Evaluation evaluation = new Evaluation(indexedGraph);
+
+    // find an upper bound for the parameter
+    double low = 0;
+    double high = 1;
+
+    while (high < MAX_PARAMETER && evaluation.evaluate(high)
+        && evaluation.expectedSize(high) < targetSize) {
+      low = high;
+      high *= 2;
+    }
+
+    // bisection: 'low' always yields an expected size below the target size (or 0)
+    for (int step = 0; step < SEARCH_STEPS; ++step) {
+      final double middle = (low + high) / 2;
+
+      if (evaluation.evaluate(middle) && evaluation.expectedSize(middle) < targetSize) {
+        low = middle;
+      } else {
+        high = middle;
+      }
+    }
+
+    final double parameter = (low > 0) ? (low) : (high);
+
+    final boolean converged = evaluation.evaluate(parameter);
+    assert (converged);
+
+    final double expectedSize = evaluation.expectedSize(parameter);
+
+    final double[] alternativeWeights = new double[indexedGraph.numberOfAlternatives()];
+    {
+      for (int alternative = 0; alternative < alternativeWeights.length; ++alternative) {
+        alternativeWeights[alternative] = indexedGraph.getAlternativeWeight(alternative)
+            * evaluation.sequenceValues[indexedGraph.getAlternativeTarget(alternative)];
+      }
+    }
+
+    final double[] elementProbabilities = new double[indexedGraph.numberOfElements()];
+    {
+      for (int element = 0; element < elementProbabilities.length; ++element) {
+        final double value = evaluation.choiceValues[indexedGraph.getElementTarget(element)];
+
+        if (indexedGraph.getElementQuantifier(element) == Quantifier.QUANT_OPTIONAL) {
+          elementProbabilities[element] = value / (1 + value);
+        } else {
+          elementProbabilities[element] = value;
+        }
+      }
+    }
+
+    final int[] choiceMinTokens = new int[indexedGraph.numberOfChoices()];
+    final int[] sequenceMinTokens = new int[indexedGraph.numberOfSequences()];
+
+    MinTokensComputation.computeMinTokens(indexedGraph, choiceMinTokens, sequenceMinTokens);
+
+    return new BoltzmannModel(indexedGraph, targetSize, parameter, expectedSize,
+        alternativeWeights, elementProbabilities, choiceMinTokens, sequenceMinTokens);
+  }
+
+  // values and derivatives of the generating functions for a certain parameter
+  private static final class Evaluation {
+
+    private final IndexedGrammarGraph indexedGraph;
+
+    private final double[] choiceValues;
+    private final double[] choiceDerivatives;
+
+    private final double[] sequenceValues;
+    private final double[] sequenceDerivatives;
+
+    public Evaluation(final IndexedGrammarGraph indexedGraph) {
+      this.indexedGraph = indexedGraph;
+
+      this.choiceValues = new double[indexedGraph.numberOfChoices()];
+      this.choiceDerivatives = new double[indexedGraph.numberOfChoices()];
+
+      this.sequenceValues = new double[indexedGraph.numberOfSequences()];
+      this.sequenceDerivatives = new double[indexedGraph.numberOfSequences()];
+    }
+
+    public final double expectedSize(final double parameter) {
+      final int root = this.indexedGraph.getRootChoice();
+
+      if (this.choiceValues[root] == 0) {
+        return 0;
+      }
+
+      return parameter * this.choiceDerivatives[root] / this.choiceValues[root];
+    }
+
+    // fixpoint iteration starting from zero; returns 'false' if the iteration diverges (or does
+    // not converge fast enough)
+    public final boolean evaluate(final double parameter) {
+      Arrays.fill(this.choiceValues, 0);
+      Arrays.fill(this.choiceDerivatives, 0);
+      Arrays.fill(this.sequenceValues, 0);
+      Arrays.fill(this.sequenceDerivatives, 0);
+
+      for (int iteration = 0; iteration < MAX_ITERATIONS; ++iteration) {
+        boolean changed = false;
+
+        for (int sequence = 0; sequence < this.sequenceValues.length; ++sequence) {
+          double value = 1;
+          double derivative = 0;
+
+          for (final int element : this.indexedGraph.getElements(sequence)) {
+            final int target = this.indexedGraph.getElementTarget(element);
+
+            final double targetValue = this.choiceValues[target];
+            final double targetDerivative = this.choiceDerivatives[target];
+
+            final double elementValue;
+            final double elementDerivative;
+            {
+              final Quantifier quantifier = this.indexedGraph.getElementQuantifier(element);
+
+              if (quantifier == Quantifier.QUANT_NONE) {
+                elementValue = targetValue;
+                elementDerivative = targetDerivative;
+              } else if (quantifier == Quantifier.QUANT_OPTIONAL) {
+                elementValue = 1 + targetValue;
+                elementDerivative = targetDerivative;
+              } else {
+                if (targetValue >= 1) {
+                  // the expected number of elements is infinite
+                  return false;
+                }
+
+                final double remaining = 1 - targetValue;
+
+                if (quantifier == Quantifier.QUANT_STAR) {
+                  elementValue = 1 / remaining;
+                } else {
+                  assert (quantifier == Quantifier.QUANT_PLUS);
+                  elementValue = targetValue / remaining;
+                }
+
+                elementDerivative = targetDerivative / (remaining * remaining);
+              }
+            }
+
+            derivative = derivative * elementValue + value * elementDerivative;
+            value = value * elementValue;
+          }
+
+          changed |= update(this.sequenceValues, this.sequenceDerivatives, sequence, value,
+              derivative);
+        }
+
+        for (int choice = 0; choice < this.choiceValues.length; ++choice) {
+          double value;
+          double derivative;
+
+          if (this.indexedGraph.isTerminal(choice)) {
+            value = parameter;
+            derivative = 1;
+          } else {
+            value = 0;
+            derivative = 0;
+          }
+
+          for (final int alternative : this.indexedGraph.getAlternatives(choice)) {
+            final int weight = this.indexedGraph.getAlternativeWeight(alternative);
+            final int target = this.indexedGraph.getAlternativeTarget(alternative);
+
+            value += weight * this.sequenceValues[target];
+            derivative += weight * this.sequenceDerivatives[target];
+          }
+
+          changed |= update(this.choiceValues, this.choiceDerivatives, choice, value, derivative);
+        }
+
+        for (final double value : this.choiceValues) {
+          if (!(value <= MAX_VALUE)) {
+            return false;
+          }
+        }
+
+        if (!changed) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    private static final boolean update(final double[] values, final double[] derivatives,
+        final int index, final double value, final double derivative) {
+      final boolean changed = Math.abs(value - values[index]) > EPSILON * Math.abs(value)
+          || Math.abs(derivative - derivatives[index]) > EPSILON * Math.abs(derivative);
+
+      values[index] = value;
+      derivatives[index] = derivative;
+
+      return changed;
+    }
+
+  }
+
+}
@@ -0,0 +1,169 @@
+package i2.act.fuzzer.selection;
+
+import i2.act.grammargraph.GrammarGraphEdge.Alternative;
+import i2.act.grammargraph.GrammarGraphEdge.Element;
+import i2.act.grammargraph.IndexedGrammarGraph;
+import i2.act.util.RandomNumberGenerator;
+
+import java.util.List;
+
+// chooses alternatives and quantifier repetitions with the probabilities of a Boltzmann model,
+// such that the expected size of the generated programs is close to the target size of the model
+//
+// additionally, the strategy keeps track of the minimal number of tokens that the program
+// generated so far will have (i.e., the tokens that have already been generated plus the tokens
+// that the pending choices require at least); once a decision would push this number above the
+// upper bound, the remaining program is completed with minimal alternatives and without further
+// repetitions (note that this tracking requires that all decisions are made by this strategy)
+public final class BoltzmannSelection implements SelectionStrategy {
+
+  public static final int UPPER_BOUND_FACTOR = 2;
+
+  private final BoltzmannModel model;
+  private final IndexedGrammarGraph indexedGraph;
+  private final RandomNumberGenerator rng;
+
+  private final int upperBound;
+
+  private int committedTokens;
+
+  public BoltzmannSelection(final BoltzmannModel model) {
+    this(model, System.currentTimeMillis());
+  }
+
+  public BoltzmannSelection(final BoltzmannModel model, final long seed) {
+    this(model, new RandomNumberGenerator(seed));
+  }
+
+  public BoltzmannSelection(final BoltzmannModel model, final RandomNumberGenerator rng) {
+    this.model = model;
+    this.indexedGraph = model.getIndexedGraph();
+    this.rng = rng;
+
+    this.upperBound = UPPER_BOUND_FACTOR * model.getTargetSize();
+
+    reset();
+  }
+
+  @Override
+  public final Alternative chooseAlternative(final List<Alternative> alternatives,
+      final int maxHeight) {
+    assert (!alternatives.isEmpty());
+
+    final Alternative chosenAlternative = selectAlternative(alternatives);
+
+    final int choice = this.indexedGraph.getId(chosenAlternative.getSource());
+    final int sequence = this.indexedGraph.getId(chosenAlternative.getTarget());
+
+    this.committedTokens += this.model.getSequenceMinTokens(sequence)
+        - this.model.getChoiceMinTokens(choice);
+
+    return chosenAlternative;
+  }
+
+  private final Alternative selectAlternative(final List<Alternative> alternatives) {
+    // handle fast case first
+    if (alternatives.size() == 1) {
+      return alternatives.get(0);
+    }
+
+    final int choice = this.indexedGraph.getId(alternatives.get(0).getSource());
+    final int remainingTokens =
+        this.upperBound - (this.committedTokens - this.model.getChoiceMinTokens(choice));
+
+    double totalWeight = 0;
+    int numberOfFittingAlternatives = 0;
+
+    Alternative smallestAlternative = null;
+    int smallestMinTokens = BoltzmannModel.UNKNOWN;
+
+    for (final Alternative alternative : alternatives) {
+      final int minTokens = getMinTokens(alternative);
+
+      if (minTokens <= remainingTokens) {
+        totalWeight += getWeight(alternative);
+        ++numberOfFittingAlternatives;
+      }
+
+      if (smallestAlternative == null || minTokens < smallestMinTokens) {
+        smallestAlternative = alternative;
+        smallestMinTokens = minTokens;
+      }
+    }
+
+    if (numberOfFittingAlternatives == 0) {
+      // the upper bound is exceeded in any case -> complete the program minimally
+      return smallestAlternative;
+    }
+
+    if (totalWeight > 0) {
+      // roulette wheel selection
+      final double chosen = this.rng.nextDouble() * totalWeight;
+      double weightSum = 0;
+
+      Alternative lastFittingAlternative = null;
+
+      for (final Alternative alternative : alternatives) {
+        if (getMinTokens(alternative) <= remainingTokens) {
+          weightSum += getWeight(alternative);
+          lastFittingAlternative = alternative;
+
+          if (weightSum > chosen) {
+            return alternative;
+          }
+        }
+      }
+
+      // rounding errors
+      return lastFittingAlternative;
+    } else {
+      int chosen = this.rng.nextInt(numberOfFittingAlternatives);
+
+      for (final Alternative alternative : alternatives) {
+        if (getMinTokens(alternative) <= remainingTokens) {
+          if (chosen == 0) {
+            return alternative;
+          }
+
+          --chosen;
+        }
+      }
+
+      assert (false);
+      return null;
+    }
+  }
+
+  private final int getMinTokens(final Alternative alternative) {
+    return this.model.getSequenceMinTokens(this.indexedGraph.getId(alternative.getTarget()));
+  }
+
+  private final double getWeight(final Alternative alternative) {
+    return this.model.getAlternativeWeight(this.indexedGraph.getId(alternative));
+  }
+
+  @Override
+  public final boolean generateMoreElements(final Element element, final int count,
+      final int maxHeight) {
+    final int elementId = this.indexedGraph.getId(element);
+    final int minTokens =
+        this.model.getChoiceMinTokens(this.indexedGraph.getElementTarget(elementId));
+
+    if (this.committedTokens + minTokens > this.upperBound) {
+      return false;
+    }
+
+    if (this.rng.nextDouble() < this.model.getElementProbability(elementId)) {
+      this.committedTokens += minTokens;
+      return true;
+    }
+
+    return false;
+  }
+
+  @Override
+  public final void reset() {
+    this.committedTokens = this.model.getChoiceMinTokens(this.indexedGraph.getRootChoice());
+  }
+
+}
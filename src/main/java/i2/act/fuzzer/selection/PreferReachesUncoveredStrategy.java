@@ -4,36 +4,53 @@ import i2.act.coverage.AlternativeCoverage;
 import i2.act.grammargraph.GrammarGraph;
 import i2.act.grammargraph.GrammarGraphEdge.Alternative;
 import i2.act.grammargraph.GrammarGraphEdge.Element;
-import i2.act.grammargraph.GrammarGraphNode;
 import i2.act.grammargraph.GrammarGraphNode.Choice;
-import i2.act.grammargraph.GrammarGraphNode.Sequence;
-import i2.act.grammargraph.properties.MinHeightComputation;
-import i2.act.grammargraph.properties.ReachableNodesComputation;
+import i2.act.grammargraph.IndexedGrammarGraph;
+import i2.act.grammargraph.properties.GrammarAnalysis;
+import i2.act.grammargraph.properties.ReachableAlternatives;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 public final class PreferReachesUncoveredStrategy implements SelectionStrategy {
 
-  private final Map<GrammarGraphNode<?,?>, Map<GrammarGraphNode<?,?>, Integer>> reachableNodes;
-  private final Map<GrammarGraphNode<?,?>, Integer> minHeights;
+  private final ReachableAlternatives reachableAlternatives;
+  private final IndexedGrammarGraph indexedGraph;
 
   private final AlternativeCoverage coverage;
   private final SelectionStrategy strategyUncovered;
   private final SelectionStrategy strategyCovered;
   private final boolean strictQuantifiers;
 
+  // for each alternative, the index of the first reachable alternative (in the order of their min.
+  // heights) that has not been covered yet; as the coverage only grows until it is reset, the
+  // indices only move forward (i.e., each reachable alternative is skipped at most once per epoch)
+  private final int[] firstUncovered;
+  private int coverageEpoch;
+
   public PreferReachesUncoveredStrategy(final GrammarGraph grammarGraph,
       final AlternativeCoverage coverage,
       final SelectionStrategy strategyUncovered, final SelectionStrategy strategyCovered,
       final boolean strictQuantifiers) {
-    this.reachableNodes = ReachableNodesComputation.computeReachableNodes(grammarGraph);
-    this.minHeights = MinHeightComputation.computeMinHeights(grammarGraph);
+    this(IndexedGrammarGraph.fromGrammarGraph(grammarGraph), coverage, strategyUncovered,
+        strategyCovered, strictQuantifiers);
+  }
+
+  public PreferReachesUncoveredStrategy(final IndexedGrammarGraph indexedGraph,
+      final AlternativeCoverage coverage,
+      final SelectionStrategy strategyUncovered, final SelectionStrategy strategyCovered,
+      final boolean strictQuantifiers) {
+    this.reachableAlternatives = GrammarAnalysis.forGrammarGraph(indexedGraph.getGrammarGraph())
+        .getReachableAlternatives(indexedGraph);
+    this.indexedGraph = indexedGraph;
     this.coverage = coverage;
     this.strategyUncovered = strategyUncovered;
     this.strategyCovered = strategyCovered;
     this.strictQuantifiers = strictQuantifiers;
+
+    this.firstUncovered = new int[indexedGraph.numberOfAlternatives()];
+    this.coverageEpoch = coverage.getEpoch();
   }
 
   private static final boolean requiresNode(final Choice choice) {
@@ -52,49 +69,34 @@ public final class PreferReachesUncoveredStrategy implements SelectionStrategy {
     return false;
   }
 
+  // the reachable alternatives include the alternative itself
   private final boolean reachesUncoveredAlternative(final Alternative alternative,
       final int maxHeight) {
-    final Sequence sequence = alternative.getTarget();
-
-    assert (this.reachableNodes.containsKey(sequence));
-    assert (this.minHeights.containsKey(sequence));
-
-    if (!this.coverage.isCovered(alternative)) {
-      final int minHeightSequence = this.minHeights.get(sequence);
+    final int epoch = this.coverage.getEpoch();
 
-      if (minHeightSequence <= maxHeight) {
-        return true;
-      }
+    if (epoch != this.coverageEpoch) {
+      // covered alternatives may have become uncovered again
+      Arrays.fill(this.firstUncovered, 0);
+      this.coverageEpoch = epoch;
     }
 
-    // alternative has already been covered (or height limit does not suffice to cover alternative),
-    // but it may lead to other, uncovered alternatives
+    final int alternativeId = this.indexedGraph.getId(alternative);
 
-    final Map<GrammarGraphNode<?,?>, Integer> reachableNodesAlternative =
-        this.reachableNodes.get(sequence);
+    final int[] reachableAlternatives =
+        this.reachableAlternatives.getReachableAlternatives(alternativeId);
 
-    for (final Map.Entry<GrammarGraphNode<?,?>, Integer> entry :
-        reachableNodesAlternative.entrySet()) {
-      final GrammarGraphNode<?,?> reachableNode = entry.getKey();
+    int index = this.firstUncovered[alternativeId];
 
-      if (!(reachableNode instanceof Sequence)) {
-        continue;
-      }
-
-      final Sequence reachableSequence = (Sequence) reachableNode;
-      final Integer minHeightReachableSequence = entry.getValue();
-
-      assert (reachableNode.numberOfPredecessors() == 1);
-      final Alternative alternativeToReachableSequence =
-          reachableSequence.getPredecessorEdges().get(0);
-
-      if (!this.coverage.isCovered(alternativeToReachableSequence)
-          && minHeightReachableSequence <= maxHeight) {
-        return true;
-      }
+    while (index < reachableAlternatives.length
+        && this.coverage.isCovered(reachableAlternatives[index])) {
+      ++index;
     }
 
-    return false;
+    this.firstUncovered[alternativeId] = index;
+
+    // sorted by min. height -> all other uncovered alternatives require at least the same height
+    return index < reachableAlternatives.length
+        && this.reachableAlternatives.getMinHeights(alternativeId)[index] <= maxHeight;
   }
 
   @Override
@@ -132,4 +134,10 @@ public final class PreferReachesUncoveredStrategy implements SelectionStrategy {
     }
   }
 
+  @Override
+  public final void reset() {
+    this.strategyUncovered.reset();
+    this.strategyCovered.reset();
+  }
+
 }
@@ -40,4 +40,10 @@ public final class PreferUncoveredStrategy implements SelectionStrategy {
     return this.strategyCovered.generateMoreElements(element, count, maxHeight);
   }
 
+  @Override
+  public final void reset() {
+    this.strategyUncovered.reset();
+    this.strategyCovered.reset();
+  }
+
 }
@@ -37,9 +37,21 @@ public abstract class RandomSelection implements SelectionStrategy {
     }
 
     // roulette wheel selection
-    final int totalWeight = alternatives.stream()
-        .map(alternative -> getWeight(alternative))
-        .reduce(0, Integer::sum);
+    if (alternatives instanceof ViableAlternatives) {
+      final ViableAlternatives viableAlternatives = (ViableAlternatives) alternatives;
+      final int[] cumulativeWeights = getCumulativeWeights(viableAlternatives);
+
+      final int totalWeight = cumulativeWeights[cumulativeWeights.length - 1];
+      final int chosen = this.rng.nextInt(totalWeight + 1);
+
+      return viableAlternatives.get(firstIndexAtLeast(cumulativeWeights, chosen));
+    }
+
+    int totalWeight = 0;
+
+    for (final Alternative alternative : alternatives) {
+      totalWeight += getWeight(alternative);
+    }
 
     final int chosen = this.rng.nextInt(totalWeight + 1);
     int weightSum = 0;
@@ -56,14 +68,40 @@ public abstract class RandomSelection implements SelectionStrategy {
     return null;
   }
 
+  // returns the first index whose prefix sum is at least 'value' (the prefix sums are sorted)
+  private static final int firstIndexAtLeast(final int[] cumulativeWeights, final int value) {
+    int low = 0;
+    int high = cumulativeWeights.length - 1;
+
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+
+      if (cumulativeWeights[middle] >= value) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+
+    assert (cumulativeWeights[low] >= value);
+    return low;
+  }
+
   @Override
   public final boolean generateMoreElements(final Element element, final int count,
       final int maxHeight) {
     return this.rng.nextInt(getWeight(element) + 1) != 0;
   }
 
+  @Override
+  public final void reset() {
+    // nothing to do
+  }
+
   protected abstract int getWeight(final Alternative alternative);
 
+  protected abstract int[] getCumulativeWeights(final ViableAlternatives alternatives);
+
   protected abstract int getWeight(final Element element);
 
 }
@@ -13,4 +13,7 @@ public interface SelectionStrategy {
   public abstract boolean generateMoreElements(final Element element, final int count,
       final int maxHeight);
 
+  // called before each program is generated
+  public abstract void reset();
+
 }
@@ -2,6 +2,7 @@ package i2.act.fuzzer.selection;
 
 import i2.act.coverage.AlternativeCoverage;
 import i2.act.grammargraph.GrammarGraph;
+import i2.act.grammargraph.IndexedGrammarGraph;
 import i2.act.packrat.Lexer;
 import i2.act.packrat.Parser;
 import i2.act.packrat.cst.visitors.TreeVisitor;
@@ -28,6 +29,12 @@ public final class SelectionStrategyParser {
   public static final SelectionStrategy parse(final String string,
       final GrammarGraph grammarGraph, final AlternativeCoverage coverage,
       final RandomNumberGenerator rng) {
+    return parse(string, IndexedGrammarGraph.fromGrammarGraph(grammarGraph), coverage, rng);
+  }
+
+  public static final SelectionStrategy parse(final String string,
+      final IndexedGrammarGraph indexedGraph, final AlternativeCoverage coverage,
+      final RandomNumberGenerator rng) {
     final GrammarBuilder builder = new GrammarBuilder();
 
     final LexerSymbol LPAREN = builder.define("LPAREN", "'('");
@@ -35,6 +42,7 @@ public final class SelectionStrategyParser {
     final LexerSymbol COMMA = builder.define("COMMA", "','");
     final LexerSymbol RAND = builder.define("RAND", "[Rr][Aa][Nn][Dd] ( [Oo][Mm] )?");
     final LexerSymbol UNIFORM = builder.define("UNIFORM", "[Uu][Nn][Ii][Ff][Oo][Rr][Mm]");
+    final LexerSymbol ALIAS = builder.define("ALIAS", "[Aa][Ll][Ii][Aa][Ss]");
     final LexerSymbol SMALL = builder.define("SMALL", "[Ss][Mm][Aa][Ll][Ll] ( [Ee][Ss][Tt] )?");
     final LexerSymbol UNCOV = builder.define("UNCOV", "[Uu][Nn][Cc][Oo][Vv] ( [Ee][Rr][Ee][Dd] )?");
     final LexerSymbol REACHESUNCOV = builder.define(
@@ -48,6 +56,7 @@ public final class SelectionStrategyParser {
     final ParserSymbol selection_strategy = builder.declare("selection_strategy");
     final ParserSymbol random = builder.declare("random");
     final ParserSymbol uniform = builder.declare("uniform");
+    final ParserSymbol alias = builder.declare("alias");
     final ParserSymbol smallest = builder.declare("smallest");
     final ParserSymbol uncovered = builder.declare("uncovered");
     final ParserSymbol reaches_uncovered = builder.declare("reaches_uncovered");
@@ -56,7 +65,7 @@ public final class SelectionStrategyParser {
         seq(selection_strategy, LexerSymbol.EOF));
 
     builder.define(selection_strategy,
-        seq(alt(random, uniform, smallest, uncovered, reaches_uncovered)));
+        seq(alt(random, uniform, alias, smallest, uncovered, reaches_uncovered)));
 
     builder.define(random,
         seq(RAND, opt(seq(LPAREN, RPAREN))));
@@ -64,6 +73,9 @@ public final class SelectionStrategyParser {
     builder.define(uniform,
         seq(UNIFORM, opt(seq(LPAREN, RPAREN))));
 
+    builder.define(alias,
+        seq(ALIAS, opt(seq(LPAREN, RPAREN))));
+
     builder.define(smallest,
         seq(SMALL,
             opt(seq(LPAREN, opt(seq(opt(seq(PROBABILITY, COMMA)), selection_strategy)), RPAREN))));
@@ -90,6 +102,11 @@ public final class SelectionStrategyParser {
       return new UniformRandomSelection(rng);
     });
 
+    // alias
+    visitor.add(alias, (node, _void) -> {
+      return new AliasSelection(rng);
+    });
+
     // smallest
     visitor.add(smallest, (node, _void) -> {
       final SelectionStrategy baseStrategy;
@@ -109,7 +126,7 @@ public final class SelectionStrategyParser {
         }
       }
 
-      return new SmallestProductionSelection(grammarGraph, baseStrategy, probability, rng);
+      return new SmallestProductionSelection(indexedGraph, baseStrategy, probability, rng);
     });
 
     // uncovered
@@ -143,7 +160,7 @@ public final class SelectionStrategyParser {
       }
 
       return new PreferReachesUncoveredStrategy(
-          grammarGraph, coverage, strategyUncovered, strategyCovered, strictQuantifiers);
+          indexedGraph, coverage, strategyUncovered, strategyCovered, strictQuantifiers);
     });
 
     // root
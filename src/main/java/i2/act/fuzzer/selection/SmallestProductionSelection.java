@@ -3,13 +3,11 @@ package i2.act.fuzzer.selection;
 import i2.act.grammargraph.GrammarGraph;
 import i2.act.grammargraph.GrammarGraphEdge.Alternative;
 import i2.act.grammargraph.GrammarGraphEdge.Element;
-import i2.act.grammargraph.GrammarGraphNode;
-import i2.act.grammargraph.properties.MinSizeComputation;
+import i2.act.grammargraph.IndexedGrammarGraph;
 import i2.act.util.RandomNumberGenerator;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 public final class SmallestProductionSelection implements SelectionStrategy {
 
@@ -17,7 +15,7 @@ public final class SmallestProductionSelection implements SelectionStrategy {
   private final double probability;
   private final RandomNumberGenerator rng;
 
-  private final Map<GrammarGraphNode<?,?>, Integer> minSizes;
+  private final IndexedGrammarGraph indexedGraph;
 
   public SmallestProductionSelection(final GrammarGraph grammarGraph,
       final SelectionStrategy baseStrategy, final double probability) {
@@ -32,7 +30,13 @@ public final class SmallestProductionSelection implements SelectionStrategy {
   public SmallestProductionSelection(final GrammarGraph grammarGraph,
       final SelectionStrategy baseStrategy, final double probability,
       final RandomNumberGenerator rng) {
-    this.minSizes = MinSizeComputation.computeMinSizes(grammarGraph);
+    this(IndexedGrammarGraph.fromGrammarGraph(grammarGraph), baseStrategy, probability, rng);
+  }
+
+  public SmallestProductionSelection(final IndexedGrammarGraph indexedGraph,
+      final SelectionStrategy baseStrategy, final double probability,
+      final RandomNumberGenerator rng) {
+    this.indexedGraph = indexedGraph;
 
     this.baseStrategy = baseStrategy;
     this.probability = probability;
@@ -51,8 +55,8 @@ public final class SmallestProductionSelection implements SelectionStrategy {
         int minSize = Integer.MAX_VALUE;
 
         for (final Alternative alternative : alternatives) {
-          assert (this.minSizes.containsKey(alternative.getTarget()));
-          final int minSizeAlternative = this.minSizes.get(alternative.getTarget());
+          final int minSizeAlternative =
+              this.indexedGraph.getAlternativeMinSize(this.indexedGraph.getId(alternative));
 
           if (minSizeAlternative < minSize) {
             minSize = minSizeAlternative;
@@ -78,6 +82,11 @@ public final class SmallestProductionSelection implements SelectionStrategy {
     return this.rng.nextDouble() * (adjustedWeight + 1) > 1.0;
   }
 
+  @Override
+  public final void reset() {
+    this.baseStrategy.reset();
+  }
+
   private final boolean chooseSmall() {
     return this.rng.nextDouble() < this.probability;
   }
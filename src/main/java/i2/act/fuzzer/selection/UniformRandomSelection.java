@@ -23,6 +23,11 @@ public final class UniformRandomSelection extends RandomSelection {
     return 1;
   }
 
+  @Override
+  protected final int[] getCumulativeWeights(final ViableAlternatives alternatives) {
+    return alternatives.getCumulativeUniformWeights();
+  }
+
   @Override
   protected final int getWeight(final Element element) {
     return 1;
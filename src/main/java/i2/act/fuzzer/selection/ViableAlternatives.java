@@ -0,0 +1,148 @@
+package i2.act.fuzzer.selection;
+
+import i2.act.grammargraph.GrammarGraphEdge.Alternative;
+import i2.act.grammargraph.IndexedGrammarGraph;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+// an immutable list of the alternatives of a choice that are viable for a certain height, together
+// with the prefix sums of their weights (used by 'RandomSelection' for a binary search) and an
+// alias table of their weights (used by 'AliasSelection' to sample an alternative in constant time)
+public final class ViableAlternatives extends AbstractList<Alternative> implements RandomAccess {
+
+  private final int[] ids;
+  private final Alternative[] alternatives;
+
+  private final int[] cumulativeWeights;
+  private final int[] cumulativeUniformWeights;
+
+  // alias table (integer variant of Vose's method): an index 'i' that is drawn uniformly at random
+  // is kept if a value drawn uniformly from '[0, totalWeight)' is less than 'aliasThresholds[i]';
+  // otherwise, 'aliases[i]' is used
+  private final int totalWeight;
+  private final int[] aliasThresholds;
+  private final int[] aliases;
+
+  public ViableAlternatives(final IndexedGrammarGraph indexedGraph, final int[] ids) {
+    assert (ids.length > 0);
+
+    this.ids = ids;
+    this.alternatives = new Alternative[ids.length];
+
+    this.cumulativeWeights = new int[ids.length];
+    this.cumulativeUniformWeights = new int[ids.length];
+
+    int weightSum = 0;
+
+    for (int index = 0; index < ids.length; ++index) {
+      this.alternatives[index] = indexedGraph.getAlternative(ids[index]);
+
+      weightSum += indexedGraph.getAlternativeWeight(ids[index]);
+
+      this.cumulativeWeights[index] = weightSum;
+      this.cumulativeUniformWeights[index] = index + 1;
+    }
+
+    // if all weights are zero, all alternatives are equally likely
+    final boolean uniform = (weightSum == 0);
+
+    this.totalWeight = (uniform) ? (ids.length) : (weightSum);
+    this.aliasThresholds = new int[ids.length];
+    this.aliases = new int[ids.length];
+
+    computeAliasTable(indexedGraph, uniform);
+  }
+
+  private final void computeAliasTable(final IndexedGrammarGraph indexedGraph,
+      final boolean uniform) {
+    final int size = this.ids.length;
+
+    // each index has a "capacity" of 'totalWeight'; the weights are scaled by the number of indices
+    // such that the scaled weights add up to 'size * totalWeight' (thresholds are always less than
+    // or equal to 'totalWeight' and thus fit into an int)
+    final long[] scaledWeights = new long[size];
+    {
+      for (int index = 0; index < size; ++index) {
+        final long weight = (uniform) ? (1) : (indexedGraph.getAlternativeWeight(this.ids[index]));
+        scaledWeights[index] = weight * size;
+      }
+    }
+
+    final int[] small = new int[size];
+    final int[] large = new int[size];
+
+    int numberOfSmall = 0;
+    int numberOfLarge = 0;
+
+    for (int index = 0; index < size; ++index) {
+      if (scaledWeights[index] < this.totalWeight) {
+        small[numberOfSmall++] = index;
+      } else {
+        large[numberOfLarge++] = index;
+      }
+    }
+
+    while (numberOfSmall > 0 && numberOfLarge > 0) {
+      final int lessIndex = small[--numberOfSmall];
+      final int moreIndex = large[--numberOfLarge];
+
+      this.aliasThresholds[lessIndex] = (int) scaledWeights[lessIndex];
+      this.aliases[lessIndex] = moreIndex;
+
+      // the larger weight fills up the remaining capacity of the smaller one
+      scaledWeights[moreIndex] -= this.totalWeight - scaledWeights[lessIndex];
+
+      if (scaledWeights[moreIndex] < this.totalWeight) {
+        small[numberOfSmall++] = moreIndex;
+      } else {
+        large[numberOfLarge++] = moreIndex;
+      }
+    }
+
+    // remaining indices have exactly the full capacity (the arithmetic is exact)
+    while (numberOfLarge > 0) {
+      final int index = large[--numberOfLarge];
+
+      this.aliasThresholds[index] = this.totalWeight;
+      this.aliases[index] = index;
+    }
+
+    assert (numberOfSmall == 0);
+  }
+
+  @Override
+  public final Alternative get(final int index) {
+    return this.alternatives[index];
+  }
+
+  @Override
+  public final int size() {
+    return this.alternatives.length;
+  }
+
+  public final int getId(final int index) {
+    return this.ids[index];
+  }
+
+  public final int[] getCumulativeWeights() {
+    return this.cumulativeWeights;
+  }
+
+  public final int[] getCumulativeUniformWeights() {
+    return this.cumulativeUniformWeights;
+  }
+
+  public final int getTotalWeight() {
+    return this.totalWeight;
+  }
+
+  public final int getAliasThreshold(final int index) {
+    return this.aliasThresholds[index];
+  }
+
+  public final int getAlias(final int index) {
+    return this.aliases[index];
+  }
+
+}
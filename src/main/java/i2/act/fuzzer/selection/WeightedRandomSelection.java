@@ -23,6 +23,11 @@ public final class WeightedRandomSelection extends RandomSelection {
     return alternative.getWeight();
   }
 
+  @Override
+  protected final int[] getCumulativeWeights(final ViableAlternatives alternatives) {
+    return alternatives.getCumulativeWeights();
+  }
+
   @Override
   protected final int getWeight(final Element element) {
     return element.getWeight();
@@ -0,0 +1,283 @@
+package i2.act.fuzzer.tokens;
+
+import i2.act.packrat.nfa.NFA;
+import i2.act.packrat.nfa.NFAState;
+import i2.act.packrat.nfa.Transition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// for each state of an NFA, the minimal number of characters that are required to reach an
+// accepting state, and the minimal number of transitions among the paths with this number of
+// characters; a random walk can use these distances to reach an accepting state before a certain
+// length is exceeded
+//
+// the reachable states of all NFAs are assigned dense ids, and their transitions, the ids of the
+// targets, and the distances are stored in primitive arrays that are indexed by these ids (thus, a
+// random walk on the ids does not need any map lookups)
+public final class AcceptanceDistances {
+
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  // only looked up once per token
+  private final Map<NFA, Integer> startStates;
+
+  // indexed by the ids of the states
+  private final boolean[] accepting;
+  private final Transition[][] transitions;
+  private final int[][] targets;
+
+  private final int[] characterDistances;
+  private final int[] transitionDistances;
+
+  private AcceptanceDistances(final Map<NFA, Integer> startStates, final boolean[] accepting,
+      final Transition[][] transitions, final int[][] targets, final int[] characterDistances,
+      final int[] transitionDistances) {
+    this.startStates = startStates;
+    this.accepting = accepting;
+    this.transitions = transitions;
+    this.targets = targets;
+    this.characterDistances = characterDistances;
+    this.transitionDistances = transitionDistances;
+  }
+
+  public static final AcceptanceDistances forNFAs(final List<NFA> nfas) {
+    final Map<NFA, Integer> startStates = new IdentityHashMap<>();
+
+    // the states of different NFAs are disjoint
+    final Map<NFAState, Integer> ids = new IdentityHashMap<>();
+    final List<NFAState> states = new ArrayList<>();
+    {
+      for (final NFA nfa : nfas) {
+        final Deque<NFAState> worklist = new ArrayDeque<>();
+
+        if (!ids.containsKey(nfa.getStartState())) {
+          ids.put(nfa.getStartState(), states.size());
+          states.add(nfa.getStartState());
+          worklist.add(nfa.getStartState());
+        }
+
+        startStates.put(nfa, ids.get(nfa.getStartState()));
+
+        while (!worklist.isEmpty()) {
+          final NFAState state = worklist.removeFirst();
+
+          for (final Transition transition : state.getTransitions()) {
+            final NFAState target = transition.getTo();
+
+            if (!ids.containsKey(target)) {
+              ids.put(target, states.size());
+              states.add(target);
+              worklist.add(target);
+            }
+          }
+        }
+      }
+    }
+
+    final int numberOfStates = states.size();
+
+    final boolean[] accepting = new boolean[numberOfStates];
+    {
+      for (final NFA nfa : nfas) {
+        for (final NFAState state : nfa.getAcceptingStates()) {
+          final Integer id = ids.get(state);
+
+          if (id != null) {
+            accepting[id] = true;
+          }
+        }
+      }
+    }
+
+    final Transition[][] transitions = new Transition[numberOfStates][];
+    final int[][] targets = new int[numberOfStates][];
+    {
+      for (int id = 0; id < numberOfStates; ++id) {
+        final List<Transition> stateTransitions = states.get(id).getTransitions();
+
+        transitions[id] = stateTransitions.toArray(new Transition[stateTransitions.size()]);
+        targets[id] = new int[transitions[id].length];
+
+        for (int index = 0; index < transitions[id].length; ++index) {
+          targets[id][index] = ids.get(transitions[id][index].getTo());
+        }
+      }
+    }
+
+    final int[][] sources = computeSources(targets);
+
+    final int[] characterDistances =
+        computeCharacterDistances(accepting, transitions, targets, sources);
+    final int[] transitionDistances =
+        computeTransitionDistances(accepting, transitions, targets, sources, characterDistances);
+
+    return new AcceptanceDistances(startStates, accepting, transitions, targets,
+        characterDistances, transitionDistances);
+  }
+
+  public final int getStartState(final NFA nfa) {
+    final Integer startState = this.startStates.get(nfa);
+    assert (startState != null);
+
+    return startState;
+  }
+
+  public final boolean isAccepting(final int state) {
+    return this.accepting[state];
+  }
+
+  // the returned array must not be modified
+  public final Transition[] getTransitions(final int state) {
+    return this.transitions[state];
+  }
+
+  // the target of the transition with the given index
+  public final int getTarget(final int state, final int index) {
+    return this.targets[state][index];
+  }
+
+  public final int getCharacterDistance(final int state) {
+    return this.characterDistances[state];
+  }
+
+  // among the paths with the fewest characters
+  public final int getTransitionDistance(final int state) {
+    return this.transitionDistances[state];
+  }
+
+  // the number of characters that are required to reach an accepting state via the transition
+  // with the given index
+  public final int getCharacterDistance(final int state, final int index) {
+    final int distance = this.characterDistances[this.targets[state][index]];
+
+    if (distance == UNREACHABLE || this.transitions[state][index].isEpsilonTransition()) {
+      return distance;
+    }
+
+    return distance + 1;
+  }
+
+  // for each state, the ids of the states that have a transition to it (once per transition)
+  private static final int[][] computeSources(final int[][] targets) {
+    final int[] numberOfSources = new int[targets.length];
+    {
+      for (final int[] stateTargets : targets) {
+        for (final int target : stateTargets) {
+          ++numberOfSources[target];
+        }
+      }
+    }
+
+    final int[][] sources = new int[targets.length][];
+    {
+      for (int state = 0; state < targets.length; ++state) {
+        sources[state] = new int[numberOfSources[state]];
+      }
+
+      Arrays.fill(numberOfSources, 0);
+
+      for (int state = 0; state < targets.length; ++state) {
+        for (final int target : targets[state]) {
+          sources[target][numberOfSources[target]++] = state;
+        }
+      }
+    }
+
+    return sources;
+  }
+
+  // backwards from the accepting states: 0-1 BFS (epsilon transitions do not consume a character)
+  private static final int[] computeCharacterDistances(final boolean[] accepting,
+      final Transition[][] transitions, final int[][] targets, final int[][] sources) {
+    final int[] distances = new int[accepting.length];
+    Arrays.fill(distances, UNREACHABLE);
+
+    final Deque<Integer> worklist = new ArrayDeque<>();
+
+    for (int state = 0; state < accepting.length; ++state) {
+      if (accepting[state]) {
+        distances[state] = 0;
+        worklist.add(state);
+      }
+    }
+
+    while (!worklist.isEmpty()) {
+      final int state = worklist.removeFirst();
+
+      for (final int source : sources[state]) {
+        // the source may have multiple transitions to the state
+        for (int index = 0; index < targets[source].length; ++index) {
+          if (targets[source][index] != state) {
+            continue;
+          }
+
+          final int cost = (transitions[source][index].isEpsilonTransition()) ? (0) : (1);
+
+          if (distances[state] + cost < distances[source]) {
+            distances[source] = distances[state] + cost;
+
+            if (cost == 0) {
+              worklist.addFirst(source);
+            } else {
+              worklist.addLast(source);
+            }
+          }
+        }
+      }
+    }
+
+    return distances;
+  }
+
+  // backwards from the accepting states: BFS that only follows the transitions that lie on a path
+  // with the fewest characters (thus, a walk that always takes a transition with the smallest
+  // character distance and, among these, with the smallest transition distance, terminates)
+  private static final int[] computeTransitionDistances(final boolean[] accepting,
+      final Transition[][] transitions, final int[][] targets, final int[][] sources,
+      final int[] characterDistances) {
+    final int[] distances = new int[accepting.length];
+    Arrays.fill(distances, UNREACHABLE);
+
+    final Deque<Integer> worklist = new ArrayDeque<>();
+
+    for (int state = 0; state < accepting.length; ++state) {
+      if (accepting[state]) {
+        distances[state] = 0;
+        worklist.add(state);
+      }
+    }
+
+    while (!worklist.isEmpty()) {
+      final int state = worklist.removeFirst();
+
+      for (final int source : sources[state]) {
+        if (distances[source] != UNREACHABLE) {
+          continue;
+        }
+
+        for (int index = 0; index < targets[source].length; ++index) {
+          if (targets[source][index] != state) {
+            continue;
+          }
+
+          final int cost = (transitions[source][index].isEpsilonTransition()) ? (0) : (1);
+
+          if (characterDistances[state] + cost == characterDistances[source]) {
+            distances[source] = distances[state] + 1;
+            worklist.addLast(source);
+            break;
+          }
+        }
+      }
+    }
+
+    return distances;
+  }
+
+}
@@ -0,0 +1,198 @@
+package i2.act.fuzzer.tokens;
+
+import i2.act.packrat.Lexer;
+import i2.act.packrat.Token;
+import i2.act.packrat.nfa.CharacterSet;
+import i2.act.packrat.nfa.NFA;
+import i2.act.packrat.nfa.NFAState;
+import i2.act.packrat.nfa.Transition;
+import i2.act.peg.ast.Grammar;
+import i2.act.peg.symbols.LexerSymbol;
+import i2.act.util.RandomNumberGenerator;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// keeps a bounded pool of the token values that have already been created for each lexer symbol
+// and, with a certain probability, reuses one of these values instead of creating a new one (thus,
+// the generated programs refer to the same identifiers more often); if a pool is full, the least
+// recently used value is evicted
+//
+// the pools are cleared before each program is generated, such that each program still only
+// depends on its random seed
+//
+// lexer symbols that only have a single value (e.g., keywords and punctuation) are not pooled;
+// their tokens are directly created by the wrapped token generator
+public final class CachingTokenGenerator implements TokenGenerator {
+
+  public static final int DEFAULT_POOL_SIZE = 16;
+
+  private static final class Pool {
+
+    private final String[] values;
+    private final long[] lastUses;
+
+    private int size;
+
+    public Pool(final int capacity) {
+      this.values = new String[capacity];
+      this.lastUses = new long[capacity];
+    }
+
+    private final int indexOf(final String value) {
+      for (int index = 0; index < this.size; ++index) {
+        if (this.values[index].equals(value)) {
+          return index;
+        }
+      }
+
+      return -1;
+    }
+
+    private final int leastRecentlyUsed() {
+      int leastRecentlyUsed = 0;
+
+      for (int index = 1; index < this.size; ++index) {
+        if (this.lastUses[index] < this.lastUses[leastRecentlyUsed]) {
+          leastRecentlyUsed = index;
+        }
+      }
+
+      return leastRecentlyUsed;
+    }
+
+  }
+
+  private final TokenGenerator tokenGenerator;
+  private final RandomNumberGenerator rng;
+
+  private final double reuseProbability;
+  private final int poolSize;
+
+  // only contains the lexer symbols that are pooled
+  private final Map<LexerSymbol, Pool> pools;
+
+  // incremented for each created token (used to find the least recently used values)
+  private long time;
+
+  public CachingTokenGenerator(final Grammar grammar, final Lexer lexer,
+      final TokenGenerator tokenGenerator, final RandomNumberGenerator rng,
+      final double reuseProbability) {
+    this(grammar, lexer, tokenGenerator, rng, reuseProbability, DEFAULT_POOL_SIZE);
+  }
+
+  public CachingTokenGenerator(final Grammar grammar, final Lexer lexer,
+      final TokenGenerator tokenGenerator, final RandomNumberGenerator rng,
+      final double reuseProbability, final int poolSize) {
+    assert (reuseProbability >= 0 && reuseProbability <= 1);
+    assert (poolSize > 0);
+
+    this.tokenGenerator = tokenGenerator;
+    this.rng = rng;
+
+    this.reuseProbability = reuseProbability;
+    this.poolSize = poolSize;
+
+    this.pools = new IdentityHashMap<>();
+    {
+      for (final LexerSymbol lexerSymbol : grammar.getLexerSymbols()) {
+        final NFA nfa = lexer.getNFA(lexerSymbol);
+
+        if (lexerSymbol != LexerSymbol.EOF && nfa != null && !hasSingleValue(nfa)) {
+          this.pools.put(lexerSymbol, new Pool(poolSize));
+        }
+      }
+    }
+  }
+
+  // conservative: 'true' if the NFA has a literal string or if it consists of a single path of
+  // single characters (and epsilon transitions) that ends in an accepting state without successors
+  private static final boolean hasSingleValue(final NFA nfa) {
+    if (nfa.hasLiteralString()) {
+      return true;
+    }
+
+    final Set<NFAState> acceptingStates = nfa.getAcceptingStates();
+    final Set<NFAState> visited =
+        Collections.newSetFromMap(new IdentityHashMap<NFAState, Boolean>());
+
+    NFAState state = nfa.getStartState();
+
+    while (visited.add(state)) {
+      final List<Transition> transitions = state.getTransitions();
+
+      if (transitions.isEmpty()) {
+        return acceptingStates.contains(state);
+      }
+
+      if (transitions.size() > 1 || acceptingStates.contains(state)) {
+        return false;
+      }
+
+      final Transition transition = transitions.get(0);
+
+      if (!transition.isEpsilonTransition()
+          && !(transition.getCharacters() instanceof CharacterSet.SingleCharacter)) {
+        return false;
+      }
+
+      state = transition.getTo();
+    }
+
+    // cycle
+    return false;
+  }
+
+  @Override
+  public final Token createToken(final LexerSymbol lexerSymbol) {
+    final Pool pool = this.pools.get(lexerSymbol);
+
+    if (pool == null) {
+      return this.tokenGenerator.createToken(lexerSymbol);
+    }
+
+    ++this.time;
+
+    if (pool.size > 0 && this.rng.nextDouble() < this.reuseProbability) {
+      final int index = this.rng.nextInt(pool.size);
+      pool.lastUses[index] = this.time;
+
+      return new Token(lexerSymbol, pool.values[index]);
+    }
+
+    final Token token = this.tokenGenerator.createToken(lexerSymbol);
+    final String value = token.getValue();
+
+    final int index = pool.indexOf(value);
+
+    if (index != -1) {
+      pool.lastUses[index] = this.time;
+    } else if (pool.size < this.poolSize) {
+      pool.values[pool.size] = value;
+      pool.lastUses[pool.size] = this.time;
+      ++pool.size;
+    } else {
+      final int evicted = pool.leastRecentlyUsed();
+
+      pool.values[evicted] = value;
+      pool.lastUses[evicted] = this.time;
+    }
+
+    return token;
+  }
+
+  @Override
+  public final void reset() {
+    for (final Pool pool : this.pools.values()) {
+      pool.size = 0;
+    }
+
+    this.time = 0;
+
+    this.tokenGenerator.reset();
+  }
+
+}
@@ -0,0 +1,190 @@
+package i2.act.fuzzer.tokens;
+
+import i2.act.packrat.nfa.CharacterSet;
+import i2.act.packrat.nfa.NFA;
+import i2.act.packrat.nfa.NFAState;
+import i2.act.packrat.nfa.Transition;
+import i2.act.peg.ast.CharacterRange;
+import i2.act.peg.ast.Group;
+import i2.act.peg.ast.Range;
+import i2.act.peg.ast.SingleCharacter;
+import i2.act.util.RandomNumberGenerator;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// the characters that are matched by a character set, stored as disjoint ranges together with the
+// prefix sums of their sizes; thus, a character can be drawn uniformly at random without testing
+// any characters (for inverted groups, only the printable ASCII characters are considered)
+public final class CharacterSampler {
+
+  private static final char FIRST_CHAR = ' ';
+  private static final char LAST_CHAR = '~';
+
+  private final char[] lowers;
+
+  // number of characters in the first 'i + 1' ranges
+  private final int[] cumulativeCounts;
+
+  private CharacterSampler(final char[] lowers, final int[] cumulativeCounts) {
+    this.lowers = lowers;
+    this.cumulativeCounts = cumulativeCounts;
+  }
+
+  public static final CharacterSampler forCharacterSet(final CharacterSet characterSet) {
+    final BitSet characters = new BitSet();
+
+    if (characterSet instanceof CharacterSet.SingleCharacter) {
+      characters.set(((CharacterSet.SingleCharacter) characterSet).getCharacter());
+    } else {
+      assert (characterSet instanceof CharacterSet.CharacterGroup);
+
+      final CharacterSet.CharacterGroup characterGroup = (CharacterSet.CharacterGroup) characterSet;
+      final Group group = characterGroup.getGroup();
+
+      if (group.isInverted()) {
+        for (char character = FIRST_CHAR; character <= LAST_CHAR; ++character) {
+          if (characterGroup.matches(character)) {
+            characters.set(character);
+          }
+        }
+      } else {
+        // the ranges may overlap -> each character should only be counted once
+        for (final Range range : group.getRanges()) {
+          characters.set(getLower(range), getUpper(range) + 1);
+        }
+      }
+    }
+
+    return fromBitSet(characters);
+  }
+
+  private static final CharacterSampler fromBitSet(final BitSet characters) {
+    int numberOfRanges = 0;
+    {
+      for (int lower = characters.nextSetBit(0); lower >= 0;
+          lower = characters.nextSetBit(characters.nextClearBit(lower))) {
+        ++numberOfRanges;
+      }
+    }
+
+    final char[] lowers = new char[numberOfRanges];
+    final int[] cumulativeCounts = new int[numberOfRanges];
+
+    int index = 0;
+    int count = 0;
+
+    for (int lower = characters.nextSetBit(0); lower >= 0;
+        lower = characters.nextSetBit(characters.nextClearBit(lower))) {
+      final int upper = characters.nextClearBit(lower) - 1;
+      count += upper - lower + 1;
+
+      lowers[index] = (char) lower;
+      cumulativeCounts[index] = count;
+
+      ++index;
+    }
+
+    return new CharacterSampler(lowers, cumulativeCounts);
+  }
+
+  // computes the samplers for all character sets that appear on a transition of the NFA
+  public static final void addSamplers(final NFA nfa,
+      final Map<CharacterSet, CharacterSampler> samplers) {
+    final Set<NFAState> visited = new HashSet<>();
+    final Deque<NFAState> worklist = new ArrayDeque<>();
+
+    visited.add(nfa.getStartState());
+    worklist.add(nfa.getStartState());
+
+    while (!worklist.isEmpty()) {
+      final NFAState state = worklist.removeFirst();
+
+      for (final Transition transition : state.getTransitions()) {
+        if (!transition.isEpsilonTransition()) {
+          final CharacterSet characterSet = transition.getCharacters();
+
+          if (!samplers.containsKey(characterSet)) {
+            samplers.put(characterSet, forCharacterSet(characterSet));
+          }
+        }
+
+        if (visited.add(transition.getTo())) {
+          worklist.add(transition.getTo());
+        }
+      }
+    }
+  }
+
+  public final int numberOfCharacters() {
+    return (this.cumulativeCounts.length == 0)
+        ? (0)
+        : (this.cumulativeCounts[this.cumulativeCounts.length - 1]);
+  }
+
+  // returns the character with the given index (in ascending order)
+  public final char getCharacter(final int index) {
+    assert (index >= 0 && index < numberOfCharacters());
+
+    int range = Arrays.binarySearch(this.cumulativeCounts, index + 1);
+
+    if (range < 0) {
+      // 'index + 1' is not a prefix sum -> first range whose prefix sum is larger
+      range = -range - 1;
+    }
+
+    final int previousCount = (range == 0) ? (0) : (this.cumulativeCounts[range - 1]);
+
+    return (char) (this.lowers[range] + (index - previousCount));
+  }
+
+  public final char sample(final RandomNumberGenerator rng) {
+    final int numberOfCharacters = numberOfCharacters();
+
+    if (numberOfCharacters == 0) {
+      throw new RuntimeException("did not find a valid character");
+    }
+
+    // no random number is drawn for a single character (e.g., for a 'SingleCharacter' transition)
+    if (numberOfCharacters == 1) {
+      return this.lowers[0];
+    }
+
+    return getCharacter(rng.nextInt(numberOfCharacters));
+  }
+
+  public final void addTo(final BitSet characters) {
+    int previousCount = 0;
+
+    for (int range = 0; range < this.lowers.length; ++range) {
+      final int count = this.cumulativeCounts[range] - previousCount;
+      characters.set(this.lowers[range], this.lowers[range] + count);
+
+      previousCount = this.cumulativeCounts[range];
+    }
+  }
+
+  private static final char getLower(final Range range) {
+    if (range instanceof SingleCharacter) {
+      return ((SingleCharacter) range).getValue();
+    } else {
+      assert (range instanceof CharacterRange);
+      return ((CharacterRange) range).getLowerCharacter().getValue();
+    }
+  }
+
+  private static final char getUpper(final Range range) {
+    if (range instanceof SingleCharacter) {
+      return ((SingleCharacter) range).getValue();
+    } else {
+      assert (range instanceof CharacterRange);
+      return ((CharacterRange) range).getUpperCharacter().getValue();
+    }
+  }
+
+}
@@ -0,0 +1,140 @@
+package i2.act.fuzzer.tokens;
+
+import i2.act.grammargraph.GrammarGraph;
+import i2.act.packrat.Token;
+import i2.act.peg.ast.Grammar;
+import i2.act.peg.symbols.LexerSymbol;
+import i2.act.util.RandomNumberGenerator;
+
+import java.util.Map;
+
+// creates tokens via random walks on the automata from 'TokenDFA'; in contrast to the
+// 'RandomTokenGenerator', the created tokens do not have to be lexed again (and, possibly,
+// rejected); lexer symbols without such an automaton (e.g., literal strings) are passed to the
+// fallback generator
+public final class DFATokenGenerator implements TokenGenerator {
+
+  private final Map<LexerSymbol, TokenDFA> automata;
+  private final TokenGenerator fallback;
+  private final RandomNumberGenerator rng;
+
+  // once this length is reached, the random walk takes the shortest way to an accepting state
+  private final int maxTokenLength;
+
+  public DFATokenGenerator(final GrammarGraph grammarGraph, final RandomNumberGenerator rng) {
+    this(grammarGraph.getGrammar(), rng);
+  }
+
+  public DFATokenGenerator(final Grammar grammar, final RandomNumberGenerator rng) {
+    this(TokenDFA.forGrammar(grammar), new RandomTokenGenerator(grammar, rng), rng);
+  }
+
+  // the automata are immutable and may be shared by multiple generators (e.g., one per thread)
+  public DFATokenGenerator(final Map<LexerSymbol, TokenDFA> automata,
+      final TokenGenerator fallback, final RandomNumberGenerator rng) {
+    this(automata, fallback, rng, NO_MAX_LENGTH);
+  }
+
+  public DFATokenGenerator(final Map<LexerSymbol, TokenDFA> automata,
+      final TokenGenerator fallback, final RandomNumberGenerator rng, final int maxTokenLength) {
+    this.automata = automata;
+    this.fallback = fallback;
+    this.rng = rng;
+    this.maxTokenLength = maxTokenLength;
+  }
+
+  @Override
+  public final Token createToken(final LexerSymbol lexerSymbol) {
+    final TokenDFA automaton = this.automata.get(lexerSymbol);
+
+    if (automaton == null) {
+      return this.fallback.createToken(lexerSymbol);
+    }
+
+    return new Token(lexerSymbol, createRandomString(automaton));
+  }
+
+  @Override
+  public final void reset() {
+    this.fallback.reset();
+  }
+
+  private final String createRandomString(final TokenDFA automaton) {
+    final StringBuilder builder = new StringBuilder();
+
+    int currentState = automaton.getStartState();
+
+    while (true) {
+      final int numberOfEdges = automaton.numberOfEdges(currentState);
+
+      if (automaton.isAccepting(currentState)
+          && (numberOfEdges == 0 || isLengthExhausted(builder) || this.rng.nextBoolean())) {
+        return builder.toString();
+      }
+
+      // all remaining states can reach an accepting state
+      assert (numberOfEdges > 0);
+
+      final int edge;
+      {
+        if (this.maxTokenLength == NO_MAX_LENGTH) {
+          edge = this.rng.nextInt(numberOfEdges);
+        } else {
+          edge = chooseEdge(automaton, currentState, this.maxTokenLength - builder.length());
+        }
+      }
+
+      final char[] characters = automaton.getCharacters(currentState, edge);
+
+      builder.append(characters[this.rng.nextInt(characters.length)]);
+
+      currentState = automaton.getTarget(currentState, edge);
+    }
+  }
+
+  private final boolean isLengthExhausted(final StringBuilder builder) {
+    return this.maxTokenLength != NO_MAX_LENGTH && builder.length() >= this.maxTokenLength;
+  }
+
+  // chooses one of the edges after which an accepting state can still be reached with the
+  // remaining number of characters; if there is no such edge, the edge that leads to an accepting
+  // state with the fewest characters is chosen
+  private final int chooseEdge(final TokenDFA automaton, final int state,
+      final int remainingLength) {
+    final int numberOfEdges = automaton.numberOfEdges(state);
+
+    int numberOfCandidates = 0;
+    {
+      for (int edge = 0; edge < numberOfEdges; ++edge) {
+        if (automaton.getDistance(automaton.getTarget(state, edge)) < remainingLength) {
+          ++numberOfCandidates;
+        }
+      }
+    }
+
+    if (numberOfCandidates > 0) {
+      int index = this.rng.nextInt(numberOfCandidates);
+
+      for (int edge = 0; edge < numberOfEdges; ++edge) {
+        if (automaton.getDistance(automaton.getTarget(state, edge)) < remainingLength
+            && (index--) == 0) {
+          return edge;
+        }
+      }
+
+      assert (false);
+    }
+
+    int shortestEdge = 0;
+
+    for (int edge = 1; edge < numberOfEdges; ++edge) {
+      if (automaton.getDistance(automaton.getTarget(state, edge))
+          < automaton.getDistance(automaton.getTarget(state, shortestEdge))) {
+        shortestEdge = edge;
+      }
+    }
+
+    return shortestEdge;
+  }
+
+}
@@ -8,21 +8,27 @@ import i2.act.packrat.nfa.CharacterSet;
 import i2.act.packrat.nfa.NFA;
 import i2.act.packrat.nfa.NFAState;
 import i2.act.packrat.nfa.Transition;
-import i2.act.peg.ast.CharacterRange;
 import i2.act.peg.ast.Grammar;
-import i2.act.peg.ast.Group;
-import i2.act.peg.ast.Range;
-import i2.act.peg.ast.SingleCharacter;
 import i2.act.peg.symbols.LexerSymbol;
 import i2.act.util.RandomNumberGenerator;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 public final class RandomTokenGenerator implements TokenGenerator {
 
   private final Lexer lexer;
   private final RandomNumberGenerator rng;
 
+  // precomputed for all character sets of the lexer's NFAs
+  private final Map<CharacterSet, CharacterSampler> samplers;
+
+  // once this length is reached, the random walk takes the shortest way to an accepting state
+  private final int maxTokenLength;
+  private final AcceptanceDistances distances;
+
   private final boolean checkTokens = true; // TODO make configurable
 
   public RandomTokenGenerator(final GrammarGraph grammarGraph, final RandomNumberGenerator rng) {
@@ -30,8 +36,41 @@ public final class RandomTokenGenerator implements TokenGenerator {
   }
 
   public RandomTokenGenerator(final Grammar grammar, final RandomNumberGenerator rng) {
-    this.lexer = Lexer.forGrammar(grammar);
+    this(grammar, rng, NO_MAX_LENGTH);
+  }
+
+  public RandomTokenGenerator(final Grammar grammar, final RandomNumberGenerator rng,
+      final int maxTokenLength) {
+    this(grammar, Lexer.forGrammar(grammar), rng, maxTokenLength);
+  }
+
+  // the lexer may be shared by multiple generators (e.g., one per thread)
+  public RandomTokenGenerator(final Grammar grammar, final Lexer lexer,
+      final RandomNumberGenerator rng, final int maxTokenLength) {
+    this.lexer = lexer;
     this.rng = rng;
+
+    final List<NFA> nfas = new ArrayList<>();
+    {
+      for (final LexerSymbol lexerSymbol : grammar.getLexerSymbols()) {
+        final NFA nfa = this.lexer.getNFA(lexerSymbol);
+
+        if (nfa != null) {
+          nfas.add(nfa);
+        }
+      }
+    }
+
+    this.samplers = new IdentityHashMap<>();
+    {
+      for (final NFA nfa : nfas) {
+        CharacterSampler.addSamplers(nfa, this.samplers);
+      }
+    }
+
+    this.maxTokenLength = maxTokenLength;
+    this.distances =
+        (maxTokenLength == NO_MAX_LENGTH) ? (null) : (AcceptanceDistances.forNFAs(nfas));
   }
 
   @Override
@@ -57,7 +96,16 @@ public final class RandomTokenGenerator implements TokenGenerator {
     return new Token(lexerSymbol, tokenValue);
   }
 
+  @Override
+  public final void reset() {
+    // nothing to do
+  }
+
   private final String createRandomString(final NFA nfa) {
+    if (this.maxTokenLength != NO_MAX_LENGTH) {
+      return createBoundedRandomString(nfa);
+    }
+
     final StringBuilder builder = new StringBuilder();
 
     NFAState currentState = nfa.getStartState();
@@ -77,6 +125,31 @@ public final class RandomTokenGenerator implements TokenGenerator {
     }
   }
 
+  // same random walk, but on the dense state ids of the acceptance distances
+  private final String createBoundedRandomString(final NFA nfa) {
+    final StringBuilder builder = new StringBuilder();
+
+    int currentState = this.distances.getStartState(nfa);
+
+    while (true) {
+      final Transition[] transitions = this.distances.getTransitions(currentState);
+
+      if (this.distances.isAccepting(currentState)
+          && (builder.length() >= this.maxTokenLength || stopHere(transitions))) {
+        return builder.toString();
+      }
+
+      final int index = chooseTransition(currentState, this.maxTokenLength - builder.length());
+      final Transition transition = transitions[index];
+
+      if (!transition.isEpsilonTransition()) {
+        builder.append(chooseCharacter(transition));
+      }
+
+      currentState = this.distances.getTarget(currentState, index);
+    }
+  }
+
   private final boolean isAcceptingState(final NFAState state, final NFA nfa) {
     return nfa.getAcceptingStates().contains(state);
   }
@@ -85,6 +158,10 @@ public final class RandomTokenGenerator implements TokenGenerator {
     return state.getTransitions().isEmpty() || this.rng.nextBoolean();
   }
 
+  private final boolean stopHere(final Transition[] transitions) {
+    return transitions.length == 0 || this.rng.nextBoolean();
+  }
+
   private final Transition chooseTransition(final NFAState state) {
     final List<Transition> transitions = state.getTransitions();
 
@@ -92,68 +169,66 @@ public final class RandomTokenGenerator implements TokenGenerator {
     return transitions.get(this.rng.nextInt(transitions.size()));
   }
 
-  private final char chooseCharacter(final Transition transition) {
-    return chooseCharacter(transition.getCharacters());
-  }
-
-  private final char chooseCharacter(final CharacterSet characterSet) {
-    if (characterSet instanceof CharacterSet.SingleCharacter) {
-      return ((CharacterSet.SingleCharacter) characterSet).getCharacter();
-    } else {
-      assert (characterSet instanceof CharacterSet.CharacterGroup);
-
-      final CharacterSet.CharacterGroup characterGroup = (CharacterSet.CharacterGroup) characterSet;
-      final Group group = characterGroup.getGroup();
-
-      if (group.isInverted()) {
-        // starting at a random character, iterate over printable (ASCII) characters and check if
-        // there is a valid one
-        final char FIRST_CHAR = ' ';
-        final char LAST_CHAR = '~';
-
-        final int count = LAST_CHAR - FIRST_CHAR + 1;
-        char character = (char)(FIRST_CHAR + this.rng.nextInt(count));
-
-        for (int i = 0; i < count; ++i) {
-          if (characterGroup.matches(character)) {
-            return character;
-          } else {
-            character = (char)(character + 1);
-            if (character > LAST_CHAR) {
-              character = FIRST_CHAR;
-            }
+  // chooses (the index of) one of the transitions after which an accepting state can still be
+  // reached with the remaining number of characters; if there is no such transition (or if the
+  // length is already exhausted), the transition that leads to an accepting state with the fewest
+  // characters (and, among these, with the fewest transitions) is chosen
+  private final int chooseTransition(final int state, final int remainingLength) {
+    final int numberOfTransitions = this.distances.getTransitions(state).length;
+    assert (numberOfTransitions > 0);
+
+    int numberOfCandidates = 0;
+    {
+      if (remainingLength > 0) {
+        for (int index = 0; index < numberOfTransitions; ++index) {
+          if (this.distances.getCharacterDistance(state, index) <= remainingLength) {
+            ++numberOfCandidates;
           }
         }
+      }
+    }
 
-        throw new RuntimeException("did not find a valid character");
-      } else {
-        final List<Range> ranges = group.getRanges();
-        final Range randomRange = ranges.get(this.rng.nextInt(ranges.size()));
+    if (numberOfCandidates > 0) {
+      int candidate = this.rng.nextInt(numberOfCandidates);
+
+      for (int index = 0; index < numberOfTransitions; ++index) {
+        if (this.distances.getCharacterDistance(state, index) <= remainingLength
+            && (candidate--) == 0) {
+          return index;
+        }
+      }
+
+      assert (false);
+    }
 
-        final char lower = getLower(randomRange);
-        final char upper = getUpper(randomRange);
+    int shortestIndex = 0;
 
-        return (char) (this.rng.nextInt(upper - lower + 1) + lower);
+    for (int index = 1; index < numberOfTransitions; ++index) {
+      if (isShorter(state, index, shortestIndex)) {
+        shortestIndex = index;
       }
     }
+
+    return shortestIndex;
   }
 
-  private final char getLower(final Range range) {
-    if (range instanceof SingleCharacter) {
-      return ((SingleCharacter) range).getValue();
-    } else {
-      assert (range instanceof CharacterRange);
-      return ((CharacterRange) range).getLowerCharacter().getValue();
+  private final boolean isShorter(final int state, final int index, final int otherIndex) {
+    final int characterDistance = this.distances.getCharacterDistance(state, index);
+    final int otherCharacterDistance = this.distances.getCharacterDistance(state, otherIndex);
+
+    if (characterDistance != otherCharacterDistance) {
+      return characterDistance < otherCharacterDistance;
     }
+
+    return this.distances.getTransitionDistance(this.distances.getTarget(state, index))
+        < this.distances.getTransitionDistance(this.distances.getTarget(state, otherIndex));
   }
 
-  private final char getUpper(final Range range) {
-    if (range instanceof SingleCharacter) {
-      return ((SingleCharacter) range).getValue();
-    } else {
-      assert (range instanceof CharacterRange);
-      return ((CharacterRange) range).getUpperCharacter().getValue();
-    }
+  private final char chooseCharacter(final Transition transition) {
+    final CharacterSampler sampler = this.samplers.get(transition.getCharacters());
+    assert (sampler != null);
+
+    return sampler.sample(this.rng);
   }
 
   private final boolean isValid(final String string, final LexerSymbol expectedTokenSymbol) {
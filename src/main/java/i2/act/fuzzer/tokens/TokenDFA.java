@@ -0,0 +1,361 @@
+package i2.act.fuzzer.tokens;
+
+import i2.act.packrat.Lexer;
+import i2.act.packrat.nfa.CharacterSet;
+import i2.act.packrat.nfa.NFA;
+import i2.act.packrat.nfa.NFAState;
+import i2.act.packrat.nfa.Transition;
+import i2.act.peg.ast.Grammar;
+import i2.act.peg.symbols.LexerSymbol;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// a deterministic automaton that accepts exactly the (non-empty) strings that the lexer recognizes
+// as a single token of a certain lexer symbol, i.e., the strings that are accepted by the NFA of
+// this symbol but not by the NFA of a lexer symbol with a higher priority (for matches of the same
+// length, the lexer prefers the lexer symbol that is declared first); states from which no
+// accepting state is reachable are removed, such that every random walk yields a valid token
+public final class TokenDFA {
+
+  // the subset construction may blow up -> give up (and fall back to the NFA) for larger automata
+  public static final int MAX_STATES = 4096;
+
+  private static final int START_STATE = 0;
+
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  private final boolean[] accepting;
+
+  // minimal number of characters that are required to reach an accepting state
+  private final int[] distances;
+
+  // outgoing edges of each state: characters of an edge all lead to the same target state
+  private final int[][] targets;
+  private final char[][][] characters;
+
+  private TokenDFA(final boolean[] accepting, final int[] distances, final int[][] targets,
+      final char[][][] characters) {
+    this.accepting = accepting;
+    this.distances = distances;
+    this.targets = targets;
+    this.characters = characters;
+  }
+
+  public final int getStartState() {
+    return START_STATE;
+  }
+
+  public final int numberOfStates() {
+    return this.accepting.length;
+  }
+
+  public final boolean isAccepting(final int state) {
+    return this.accepting[state];
+  }
+
+  public final int getDistance(final int state) {
+    return this.distances[state];
+  }
+
+  public final int numberOfEdges(final int state) {
+    return this.targets[state].length;
+  }
+
+  public final int getTarget(final int state, final int edge) {
+    return this.targets[state][edge];
+  }
+
+  public final char[] getCharacters(final int state, final int edge) {
+    return this.characters[state][edge];
+  }
+
+  // returns the automata for all lexer symbols that do not have a literal string and for which the
+  // construction succeeds
+  public static final Map<LexerSymbol, TokenDFA> forGrammar(final Grammar grammar) {
+    return forGrammar(grammar, Lexer.forGrammar(grammar));
+  }
+
+  public static final Map<LexerSymbol, TokenDFA> forGrammar(final Grammar grammar,
+      final Lexer lexer) {
+    final Map<LexerSymbol, TokenDFA> automata = new LinkedHashMap<>();
+    final List<NFA> higherPriority = new ArrayList<>();
+
+    for (final LexerSymbol lexerSymbol : grammar.getLexerSymbols()) {
+      final NFA nfa = lexer.getNFA(lexerSymbol);
+
+      if (nfa == null) {
+        continue;
+      }
+
+      if (!nfa.hasLiteralString()) {
+        final TokenDFA automaton = forSymbol(nfa, higherPriority);
+
+        if (automaton != null) {
+          automata.put(lexerSymbol, automaton);
+        }
+      }
+
+      higherPriority.add(nfa);
+    }
+
+    return Collections.unmodifiableMap(automata);
+  }
+
+  // returns 'null' if the automaton would be too large or if it does not accept any string
+  public static final TokenDFA forSymbol(final NFA nfa, final List<NFA> higherPriority) {
+    final Set<NFAState> acceptingStates = nfa.getAcceptingStates();
+
+    final Set<NFAState> otherAcceptingStates = new HashSet<>();
+    final Set<NFAState> otherStartStates = new HashSet<>();
+    {
+      for (final NFA otherNFA : higherPriority) {
+        otherAcceptingStates.addAll(otherNFA.getAcceptingStates());
+        otherStartStates.add(otherNFA.getStartState());
+      }
+    }
+
+    final char[] alphabet = computeAlphabet(nfa);
+
+    // subset construction on the product of the NFA and the union of all higher-priority NFAs;
+    // the start state is never merged with another state since it must not accept the empty string
+    final List<Set<NFAState>> ownStates = new ArrayList<>();
+    final List<Set<NFAState>> otherStates = new ArrayList<>();
+    final List<Map<Integer, StringBuilder>> edges = new ArrayList<>();
+
+    final Map<List<Set<NFAState>>, Integer> stateIds = new HashMap<>();
+
+    ownStates.add(epsilonClosure(Collections.singleton(nfa.getStartState())));
+    otherStates.add(epsilonClosure(otherStartStates));
+
+    for (int state = 0; state < ownStates.size(); ++state) {
+      final Map<Integer, StringBuilder> stateEdges = new LinkedHashMap<>();
+      edges.add(stateEdges);
+
+      for (final char character : alphabet) {
+        final Set<NFAState> ownTarget = step(ownStates.get(state), character);
+
+        if (ownTarget.isEmpty()) {
+          continue;
+        }
+
+        final Set<NFAState> otherTarget = step(otherStates.get(state), character);
+        final List<Set<NFAState>> key = Arrays.asList(ownTarget, otherTarget);
+
+        Integer target = stateIds.get(key);
+
+        if (target == null) {
+          if (ownStates.size() >= MAX_STATES) {
+            return null;
+          }
+
+          target = ownStates.size();
+          stateIds.put(key, target);
+
+          ownStates.add(ownTarget);
+          otherStates.add(otherTarget);
+        }
+
+        if (!stateEdges.containsKey(target)) {
+          stateEdges.put(target, new StringBuilder());
+        }
+        stateEdges.get(target).append(character);
+      }
+    }
+
+    final int numberOfStates = ownStates.size();
+
+    final boolean[] accepting = new boolean[numberOfStates];
+    {
+      for (int state = 1; state < numberOfStates; ++state) {
+        accepting[state] = intersects(ownStates.get(state), acceptingStates)
+            && !intersects(otherStates.get(state), otherAcceptingStates);
+      }
+    }
+
+    // remove all states from which no accepting state is reachable
+    final int[] distances = computeDistances(accepting, edges);
+
+    final BitSet live = new BitSet(numberOfStates);
+    {
+      for (int state = 0; state < numberOfStates; ++state) {
+        if (distances[state] != UNREACHABLE) {
+          live.set(state);
+        }
+      }
+    }
+
+    if (!live.get(START_STATE)) {
+      return null;
+    }
+
+    final int[] newIds = new int[numberOfStates];
+    {
+      int nextId = 0;
+
+      for (int state = 0; state < numberOfStates; ++state) {
+        newIds[state] = live.get(state) ? (nextId++) : (-1);
+      }
+    }
+
+    final int numberOfLiveStates = live.cardinality();
+
+    final boolean[] newAccepting = new boolean[numberOfLiveStates];
+    final int[] newDistances = new int[numberOfLiveStates];
+    final int[][] targets = new int[numberOfLiveStates][];
+    final char[][][] characters = new char[numberOfLiveStates][][];
+
+    for (int state = 0; state < numberOfStates; ++state) {
+      if (!live.get(state)) {
+        continue;
+      }
+
+      final int newId = newIds[state];
+      newAccepting[newId] = accepting[state];
+      newDistances[newId] = distances[state];
+
+      final List<Integer> liveTargets = new ArrayList<>();
+      for (final int target : edges.get(state).keySet()) {
+        if (live.get(target)) {
+          liveTargets.add(target);
+        }
+      }
+
+      targets[newId] = new int[liveTargets.size()];
+      characters[newId] = new char[liveTargets.size()][];
+
+      for (int edge = 0; edge < liveTargets.size(); ++edge) {
+        final int target = liveTargets.get(edge);
+
+        targets[newId][edge] = newIds[target];
+        characters[newId][edge] = edges.get(state).get(target).toString().toCharArray();
+      }
+    }
+
+    return new TokenDFA(newAccepting, newDistances, targets, characters);
+  }
+
+  // breadth-first search backwards from the accepting states
+  private static final int[] computeDistances(final boolean[] accepting,
+      final List<Map<Integer, StringBuilder>> edges) {
+    final int numberOfStates = accepting.length;
+
+    final List<List<Integer>> predecessors = new ArrayList<>();
+    {
+      for (int state = 0; state < numberOfStates; ++state) {
+        predecessors.add(new ArrayList<>());
+      }
+
+      for (int state = 0; state < numberOfStates; ++state) {
+        for (final int target : edges.get(state).keySet()) {
+          predecessors.get(target).add(state);
+        }
+      }
+    }
+
+    final int[] distances = new int[numberOfStates];
+    Arrays.fill(distances, UNREACHABLE);
+
+    final Deque<Integer> worklist = new ArrayDeque<>();
+
+    for (int state = 0; state < numberOfStates; ++state) {
+      if (accepting[state]) {
+        distances[state] = 0;
+        worklist.add(state);
+      }
+    }
+
+    while (!worklist.isEmpty()) {
+      final int state = worklist.removeFirst();
+
+      for (final int predecessor : predecessors.get(state)) {
+        if (distances[predecessor] == UNREACHABLE) {
+          distances[predecessor] = distances[state] + 1;
+          worklist.add(predecessor);
+        }
+      }
+    }
+
+    return distances;
+  }
+
+  private static final Set<NFAState> step(final Set<NFAState> states, final char character) {
+    final Set<NFAState> targets = new HashSet<>();
+
+    for (final NFAState state : states) {
+      for (final Transition transition : state.getTransitions()) {
+        if (!transition.isEpsilonTransition() && transition.matches(character)) {
+          targets.add(transition.getTo());
+        }
+      }
+    }
+
+    return epsilonClosure(targets);
+  }
+
+  private static final Set<NFAState> epsilonClosure(final Set<NFAState> states) {
+    final Set<NFAState> closure = new HashSet<>(states);
+    final Deque<NFAState> worklist = new ArrayDeque<>(states);
+
+    while (!worklist.isEmpty()) {
+      final NFAState state = worklist.removeFirst();
+
+      for (final Transition transition : state.getTransitions()) {
+        if (transition.isEpsilonTransition() && closure.add(transition.getTo())) {
+          worklist.add(transition.getTo());
+        }
+      }
+    }
+
+    return closure;
+  }
+
+  private static final boolean intersects(final Set<NFAState> states,
+      final Set<NFAState> otherStates) {
+    for (final NFAState state : states) {
+      if (otherStates.contains(state)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  // all characters that appear on a transition of the NFA (for inverted groups, only the printable
+  // ASCII characters are considered)
+  private static final char[] computeAlphabet(final NFA nfa) {
+    final Map<CharacterSet, CharacterSampler> samplers = new IdentityHashMap<>();
+    CharacterSampler.addSamplers(nfa, samplers);
+
+    final BitSet alphabet = new BitSet();
+    {
+      for (final CharacterSampler sampler : samplers.values()) {
+        sampler.addTo(alphabet);
+      }
+    }
+
+    final char[] characters = new char[alphabet.cardinality()];
+    {
+      int index = 0;
+
+      for (int character = alphabet.nextSetBit(0); character >= 0;
+          character = alphabet.nextSetBit(character + 1)) {
+        characters[index++] = (char) character;
+      }
+    }
+
+    return characters;
+  }
+
+}
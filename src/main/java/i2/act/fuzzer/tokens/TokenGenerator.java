@@ -5,6 +5,12 @@ import i2.act.peg.symbols.LexerSymbol;
 
 public interface TokenGenerator {
 
+  public static final int NO_MAX_LENGTH = -1;
+
   public abstract Token createToken(final LexerSymbol lexerSymbol);
 
+  // called before each program is generated; afterwards, the created tokens must only depend on
+  // the state of the random number generator (i.e., not on the previously generated programs)
+  public abstract void reset();
+
 }
@@ -0,0 +1,259 @@
+package i2.act.fuzzer.util;
+
+import i2.act.grammargraph.GrammarGraph;
+import i2.act.grammargraph.IndexedGrammarGraph;
+import i2.act.grammargraph.properties.GrammarAnalysis;
+import i2.act.grammargraph.properties.ReachableAlternatives;
+import i2.act.peg.ast.Grammar;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+// the results of all grammar analyses that are required before the first program can be generated
+// (min. heights and min. sizes of the grammar graph nodes, the min. max. height, the number of
+// alternatives that can be covered, the reachable alternatives, and the separator matrix), stored
+// together with the grammar text in a compact binary file
+//
+// the grammar itself still has to be parsed when the file is loaded (the grammar graph and the
+// lexer automata refer to the AST of the grammar), but the analyses do not have to be repeated;
+// the properties are stored in the order of the ids of the indexed grammar graph, which only
+// depends on the grammar text
+public final class CompiledGrammar {
+
+  private static final int MAGIC = 0x43504547; // "CPEG"
+  private static final int VERSION = 2;
+
+  private final String grammarText;
+
+  private final int[] choiceMinHeights;
+  private final int[] choiceMinSizes;
+  private final int[] sequenceMinHeights;
+  private final int[] sequenceMinSizes;
+
+  private final int minMaxHeight;
+
+  // the alternatives of reachable choices
+  private final int numberOfCoverableAlternatives;
+
+  // indexed by the ids of the alternatives (see 'ReachableAlternatives')
+  private final int[][] reachableAlternatives;
+  private final int[][] reachableMinHeights;
+
+  // indexed by the ids of the lexer symbols
+  private final byte[][] separators;
+
+  private CompiledGrammar(final String grammarText, final int[] choiceMinHeights,
+      final int[] choiceMinSizes, final int[] sequenceMinHeights, final int[] sequenceMinSizes,
+      final int minMaxHeight, final int numberOfCoverableAlternatives,
+      final int[][] reachableAlternatives, final int[][] reachableMinHeights,
+      final byte[][] separators) {
+    this.grammarText = grammarText;
+    this.choiceMinHeights = choiceMinHeights;
+    this.choiceMinSizes = choiceMinSizes;
+    this.sequenceMinHeights = sequenceMinHeights;
+    this.sequenceMinSizes = sequenceMinSizes;
+    this.minMaxHeight = minMaxHeight;
+    this.numberOfCoverableAlternatives = numberOfCoverableAlternatives;
+    this.reachableAlternatives = reachableAlternatives;
+    this.reachableMinHeights = reachableMinHeights;
+    this.separators = separators;
+  }
+
+  public static final CompiledGrammar compile(final String grammarText,
+      final IndexedGrammarGraph indexedGraph, final int minMaxHeight,
+      final int numberOfCoverableAlternatives, final SeparatorMatrix separatorMatrix) {
+    final int numberOfChoices = indexedGraph.numberOfChoices();
+
+    final int[] choiceMinHeights = new int[numberOfChoices];
+    final int[] choiceMinSizes = new int[numberOfChoices];
+    {
+      for (int choice = 0; choice < numberOfChoices; ++choice) {
+        choiceMinHeights[choice] = indexedGraph.getChoiceMinHeight(choice);
+        choiceMinSizes[choice] = indexedGraph.getChoiceMinSize(choice);
+      }
+    }
+
+    final int numberOfSequences = indexedGraph.numberOfSequences();
+
+    final int[] sequenceMinHeights = new int[numberOfSequences];
+    final int[] sequenceMinSizes = new int[numberOfSequences];
+    {
+      for (int sequence = 0; sequence < numberOfSequences; ++sequence) {
+        sequenceMinHeights[sequence] = indexedGraph.getSequenceMinHeight(sequence);
+        sequenceMinSizes[sequence] = indexedGraph.getSequenceMinSize(sequence);
+      }
+    }
+
+    final ReachableAlternatives reachable = GrammarAnalysis
+        .forGrammarGraph(indexedGraph.getGrammarGraph()).getReachableAlternatives(indexedGraph);
+
+    final int numberOfAlternatives = indexedGraph.numberOfAlternatives();
+
+    final int[][] reachableAlternatives = new int[numberOfAlternatives][];
+    final int[][] reachableMinHeights = new int[numberOfAlternatives][];
+    {
+      for (int alternative = 0; alternative < numberOfAlternatives; ++alternative) {
+        reachableAlternatives[alternative] = reachable.getReachableAlternatives(alternative);
+        reachableMinHeights[alternative] = reachable.getMinHeights(alternative);
+      }
+    }
+
+    final int numberOfSymbols = separatorMatrix.numberOfSymbols();
+
+    final byte[][] separators = new byte[numberOfSymbols][numberOfSymbols];
+    {
+      for (int first = 0; first < numberOfSymbols; ++first) {
+        for (int second = 0; second < numberOfSymbols; ++second) {
+          separators[first][second] = separatorMatrix.get(first, second);
+        }
+      }
+    }
+
+    return new CompiledGrammar(grammarText, choiceMinHeights, choiceMinSizes, sequenceMinHeights,
+        sequenceMinSizes, minMaxHeight, numberOfCoverableAlternatives, reachableAlternatives,
+        reachableMinHeights, separators);
+  }
+
+  public final String getGrammarText() {
+    return this.grammarText;
+  }
+
+  public final int getMinMaxHeight() {
+    return this.minMaxHeight;
+  }
+
+  public final int getNumberOfCoverableAlternatives() {
+    return this.numberOfCoverableAlternatives;
+  }
+
+  public final ReachableAlternatives getReachableAlternatives(
+      final IndexedGrammarGraph indexedGraph) {
+    if (this.reachableAlternatives.length != indexedGraph.numberOfAlternatives()) {
+      throw new RuntimeException("compiled grammar does not match the grammar graph");
+    }
+
+    return ReachableAlternatives.fromArrays(
+        this.reachableAlternatives, this.reachableMinHeights, this.minMaxHeight);
+  }
+
+  // the grammar graph has to be created from the grammar text of this compiled grammar
+  public final IndexedGrammarGraph getIndexedGraph(final GrammarGraph grammarGraph) {
+    return IndexedGrammarGraph.fromGrammarGraph(grammarGraph, this.choiceMinHeights,
+        this.choiceMinSizes, this.sequenceMinHeights, this.sequenceMinSizes);
+  }
+
+  public final SeparatorMatrix getSeparatorMatrix(final Grammar grammar) {
+    return SeparatorMatrix.fromEntries(grammar, this.separators);
+  }
+
+  public final void write(final String fileName) {
+    try (final DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+
+      final byte[] grammarBytes = this.grammarText.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(grammarBytes.length);
+      out.write(grammarBytes);
+
+      writeArray(out, this.choiceMinHeights);
+      writeArray(out, this.choiceMinSizes);
+      writeArray(out, this.sequenceMinHeights);
+      writeArray(out, this.sequenceMinSizes);
+
+      out.writeInt(this.minMaxHeight);
+      out.writeInt(this.numberOfCoverableAlternatives);
+
+      out.writeInt(this.reachableAlternatives.length);
+      for (int alternative = 0; alternative < this.reachableAlternatives.length; ++alternative) {
+        writeArray(out, this.reachableAlternatives[alternative]);
+        writeArray(out, this.reachableMinHeights[alternative]);
+      }
+
+      out.writeInt(this.separators.length);
+      for (final byte[] row : this.separators) {
+        out.write(row);
+      }
+    } catch (final IOException exception) {
+      throw new RuntimeException(
+          String.format("unable to write compiled grammar '%s'", fileName), exception);
+    }
+  }
+
+  private static final void writeArray(final DataOutputStream out, final int[] array)
+      throws IOException {
+    out.writeInt(array.length);
+
+    for (final int value : array) {
+      out.writeInt(value);
+    }
+  }
+
+  // the file is mapped into memory instead of being read through a stream
+  public static final CompiledGrammar read(final String fileName) {
+    try (final RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        final FileChannel channel = file.getChannel()) {
+      final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        throw new RuntimeException(
+            String.format("'%s' is not a compiled grammar of this version", fileName));
+      }
+
+      final byte[] grammarBytes = new byte[buffer.getInt()];
+      buffer.get(grammarBytes);
+
+      final String grammarText = new String(grammarBytes, StandardCharsets.UTF_8);
+
+      final int[] choiceMinHeights = readArray(buffer);
+      final int[] choiceMinSizes = readArray(buffer);
+      final int[] sequenceMinHeights = readArray(buffer);
+      final int[] sequenceMinSizes = readArray(buffer);
+
+      final int minMaxHeight = buffer.getInt();
+      final int numberOfCoverableAlternatives = buffer.getInt();
+
+      final int numberOfAlternatives = buffer.getInt();
+
+      final int[][] reachableAlternatives = new int[numberOfAlternatives][];
+      final int[][] reachableMinHeights = new int[numberOfAlternatives][];
+      {
+        for (int alternative = 0; alternative < numberOfAlternatives; ++alternative) {
+          reachableAlternatives[alternative] = readArray(buffer);
+          reachableMinHeights[alternative] = readArray(buffer);
+        }
+      }
+
+      final int numberOfSymbols = buffer.getInt();
+      final byte[][] separators = new byte[numberOfSymbols][numberOfSymbols];
+      {
+        for (final byte[] row : separators) {
+          buffer.get(row);
+        }
+      }
+
+      return new CompiledGrammar(grammarText, choiceMinHeights, choiceMinSizes,
+          sequenceMinHeights, sequenceMinSizes, minMaxHeight, numberOfCoverableAlternatives,
+          reachableAlternatives, reachableMinHeights, separators);
+    } catch (final IOException | BufferUnderflowException | NegativeArraySizeException exception) {
+      throw new RuntimeException(
+          String.format("unable to read compiled grammar '%s'", fileName), exception);
+    }
+  }
+
+  private static final int[] readArray(final ByteBuffer buffer) {
+    final int[] array = new int[buffer.getInt()];
+    buffer.asIntBuffer().get(array);
+    buffer.position(buffer.position() + array.length * Integer.BYTES);
+
+    return array;
+  }
+
+}
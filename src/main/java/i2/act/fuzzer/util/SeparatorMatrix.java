@@ -0,0 +1,384 @@
+package i2.act.fuzzer.util;
+
+import i2.act.packrat.Lexer;
+import i2.act.packrat.Token;
+import i2.act.packrat.TokenStream;
+import i2.act.packrat.nfa.NFA;
+import i2.act.packrat.nfa.NFAState;
+import i2.act.packrat.nfa.Transition;
+import i2.act.peg.ast.Grammar;
+import i2.act.peg.symbols.LexerSymbol;
+import i2.act.util.FileUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+// for each pair of lexer symbols, whether two adjacent tokens of these symbols always, never, or
+// only for certain token values have to be separated; the lexer symbols are identified by dense
+// ids (in the order of their declaration)
+//
+// the matrix only depends on the grammar and can be stored in a cache file (named after a hash of
+// the grammar text), such that later runs do not have to compute it again
+public final class SeparatorMatrix {
+
+  public static final byte UNDECIDED = 0;
+  public static final byte SEPARATOR = 1;
+  public static final byte NO_SEPARATOR = 2;
+
+  private static final int CACHE_MAGIC = 0x53455053; // "SEPS"
+  private static final int CACHE_VERSION = 1;
+
+  private static final String CACHE_EXTENSION = ".separators";
+
+  private final List<LexerSymbol> lexerSymbols;
+  private final Map<LexerSymbol, Integer> symbolIds;
+
+  // indexed by the ids of the first and the second symbol
+  private final byte[][] entries;
+
+  private SeparatorMatrix(final Grammar grammar, final byte[][] entries) {
+    this.lexerSymbols = grammar.getLexerSymbols();
+    this.symbolIds = new IdentityHashMap<>();
+    {
+      for (final LexerSymbol lexerSymbol : this.lexerSymbols) {
+        this.symbolIds.put(lexerSymbol, this.symbolIds.size());
+      }
+    }
+
+    this.entries = entries;
+  }
+
+  public final int numberOfSymbols() {
+    return this.lexerSymbols.size();
+  }
+
+  public final int getId(final LexerSymbol lexerSymbol) {
+    final Integer id = this.symbolIds.get(lexerSymbol);
+    assert (id != null);
+
+    return id;
+  }
+
+  public final byte get(final int firstSymbol, final int secondSymbol) {
+    return this.entries[firstSymbol][secondSymbol];
+  }
+
+  // uses previously computed entries (e.g., from a compiled grammar)
+  static final SeparatorMatrix fromEntries(final Grammar grammar, final byte[][] entries) {
+    final int numberOfSymbols = grammar.getLexerSymbols().size();
+
+    if (entries.length != numberOfSymbols) {
+      throw new RuntimeException("separator matrix does not match the grammar");
+    }
+
+    for (final byte[] row : entries) {
+      if (row.length != numberOfSymbols) {
+        throw new RuntimeException("separator matrix does not match the grammar");
+      }
+    }
+
+    return new SeparatorMatrix(grammar, entries);
+  }
+
+  // computes the matrix in parallel (the decisions for different symbols are independent)
+  public static final SeparatorMatrix compute(final Grammar grammar, final Lexer lexer) {
+    final int numberOfSymbols = grammar.getLexerSymbols().size();
+
+    final SeparatorMatrix matrix =
+        new SeparatorMatrix(grammar, new byte[numberOfSymbols][numberOfSymbols]);
+
+    // j-PEG's lexer (and its NFAs) is not guaranteed to be thread-safe -> each thread of the pool
+    // uses a lexer of its own (the calling thread uses the given one)
+    final Thread caller = Thread.currentThread();
+    final ThreadLocal<Lexer> lexers = ThreadLocal.withInitial(
+        () -> (Thread.currentThread() == caller) ? (lexer) : (Lexer.forGrammar(grammar)));
+
+    // each row (resp. column) is only written by a single task
+    IntStream.range(0, numberOfSymbols).parallel()
+        .forEach((firstSymbol) -> matrix.determineRow(firstSymbol, lexers.get()));
+
+    IntStream.range(0, numberOfSymbols).parallel()
+        .forEach((secondSymbol) -> matrix.determineColumn(secondSymbol, lexers.get()));
+
+    return matrix;
+  }
+
+  // reads the matrix from the cache file for the given grammar text if it exists; otherwise, the
+  // matrix is computed and written to the cache file
+  public static final SeparatorMatrix compute(final Grammar grammar, final Lexer lexer,
+      final String grammarText, final String cacheDirectory) {
+    final File cacheFile = new File(cacheDirectory, hash(grammarText) + CACHE_EXTENSION);
+
+    if (cacheFile.isFile()) {
+      final byte[][] entries = readCacheFile(cacheFile, grammar.getLexerSymbols().size());
+
+      if (entries != null) {
+        return new SeparatorMatrix(grammar, entries);
+      }
+
+      System.err.format("[!] ignoring invalid cache file '%s'\n", cacheFile);
+    }
+
+    final SeparatorMatrix matrix = compute(grammar, lexer);
+    matrix.writeCacheFile(cacheFile);
+
+    return matrix;
+  }
+
+  private static final String hash(final String grammarText) {
+    final MessageDigest digest;
+    {
+      try {
+        digest = MessageDigest.getInstance("SHA-256");
+      } catch (final NoSuchAlgorithmException exception) {
+        throw new RuntimeException("SHA-256 is not available", exception);
+      }
+    }
+
+    final byte[] hash = digest.digest(grammarText.getBytes(StandardCharsets.UTF_8));
+
+    final StringBuilder builder = new StringBuilder();
+    {
+      for (final byte value : hash) {
+        builder.append(String.format("%02x", value));
+      }
+    }
+
+    return builder.toString();
+  }
+
+  private static final byte[][] readCacheFile(final File cacheFile, final int numberOfSymbols) {
+    try (final DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+      if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION
+          || in.readInt() != numberOfSymbols) {
+        return null;
+      }
+
+      final byte[][] entries = new byte[numberOfSymbols][numberOfSymbols];
+
+      for (final byte[] row : entries) {
+        in.readFully(row);
+      }
+
+      return entries;
+    } catch (final IOException exception) {
+      return null;
+    }
+  }
+
+  // the file is written to a temporary file first and then moved to its final location (multiple
+  // processes may try to create the same cache file at the same time)
+  private final void writeCacheFile(final File cacheFile) {
+    try {
+      FileUtil.createPathIfNotExists(cacheFile);
+
+      final File temporaryFile =
+          File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getParentFile());
+
+      try (final DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+        out.writeInt(CACHE_MAGIC);
+        out.writeInt(CACHE_VERSION);
+        out.writeInt(numberOfSymbols());
+
+        for (final byte[] row : this.entries) {
+          out.write(row);
+        }
+      }
+
+      try {
+        Files.move(temporaryFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (final AtomicMoveNotSupportedException exception) {
+        Files.move(temporaryFile.toPath(), cacheFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (final IOException exception) {
+      System.err.format("[!] unable to write cache file '%s'\n", cacheFile);
+    }
+  }
+
+  private final boolean isDecided(final int firstSymbol, final int secondSymbol) {
+    return this.entries[firstSymbol][secondSymbol] != UNDECIDED;
+  }
+
+  private final void decide(final int firstSymbol, final int secondSymbol,
+      final boolean needsSeparator) {
+    this.entries[firstSymbol][secondSymbol] = (needsSeparator) ? (SEPARATOR) : (NO_SEPARATOR);
+  }
+
+  private final void determineRow(final int first, final Lexer lexer) {
+    final LexerSymbol firstSymbol = this.lexerSymbols.get(first);
+
+    final NFA firstNFA = lexer.getNFA(firstSymbol);
+    assert (firstNFA != null);
+
+    if (firstNFA.hasLiteralString()) {
+      final String firstLiteral = firstNFA.getLiteralString();
+      boolean allOthersDoNotMatch = true;
+
+      for (final LexerSymbol secondSymbol : this.lexerSymbols) {
+        if (firstSymbol == secondSymbol) {
+          continue;
+        }
+
+        final NFA secondNFA = lexer.getNFA(secondSymbol);
+        if (secondNFA.isPossiblePrefix(firstLiteral)) {
+          allOthersDoNotMatch = false;
+          break;
+        }
+      }
+
+      if (allOthersDoNotMatch) {
+        for (int second = 0; second < numberOfSymbols(); ++second) {
+          decide(first, second, false);
+        }
+      } else {
+        for (int second = 0; second < numberOfSymbols(); ++second) {
+          final LexerSymbol secondSymbol = this.lexerSymbols.get(second);
+
+          if (firstSymbol == secondSymbol) {
+            continue;
+          }
+
+          final NFA secondNFA = lexer.getNFA(secondSymbol);
+          if (secondNFA.isPossiblePrefix(firstLiteral)) {
+            decide(first, second, true);
+          }
+        }
+      }
+    }
+
+    for (int second = 0; second < numberOfSymbols(); ++second) {
+      if (isDecided(first, second)) {
+        // already handled above
+        continue;
+      }
+
+      final LexerSymbol secondSymbol = this.lexerSymbols.get(second);
+
+      final NFA secondNFA = lexer.getNFA(secondSymbol);
+      assert (secondNFA != null);
+
+      if (firstNFA.hasLiteralString() && secondNFA.hasLiteralString()) {
+        final String joined = firstNFA.getLiteralString() + secondNFA.getLiteralString();
+        final boolean needsSeparator =
+            needsSeparator(this.lexerSymbols, lexer, joined, firstSymbol, secondSymbol);
+
+        decide(first, second, needsSeparator);
+      }
+    }
+  }
+
+  private final void determineColumn(final int second, final Lexer lexer) {
+    final LexerSymbol secondSymbol = this.lexerSymbols.get(second);
+    final NFA secondNFA = lexer.getNFA(secondSymbol);
+
+    if (!secondNFA.hasLiteralString()) {
+      return;
+    }
+
+    final String secondLiteral = secondNFA.getLiteralString();
+
+    for (final LexerSymbol firstSymbol : this.lexerSymbols) {
+      if (firstSymbol == secondSymbol || firstSymbol.isSkippedToken()) {
+        continue;
+      }
+
+      final NFA firstNFA = lexer.getNFA(firstSymbol);
+
+      for (final char character : secondLiteral.toCharArray()) {
+        if (canMatchCharacter(firstNFA, character)) {
+          return;
+        }
+      }
+    }
+
+    // no other symbol can match any character of the literal
+    for (int first = 0; first < numberOfSymbols(); ++first) {
+      if (!isDecided(first, second)) {
+        decide(first, second, false);
+      }
+    }
+  }
+
+  private static final boolean canMatchCharacter(final NFA nfa, final char character) {
+    final Set<NFAState> visitedStates = new HashSet<>();
+    return canMatchCharacter(nfa.getStartState(), character, visitedStates);
+  }
+
+  private static final boolean canMatchCharacter(final NFAState state, final char character,
+      final Set<NFAState> visitedStates) {
+    visitedStates.add(state);
+
+    for (final Transition transition : state.getTransitions()) {
+      if (!transition.isEpsilonTransition() && transition.matches(character)) {
+        return true;
+      }
+
+      final NFAState targetState = transition.getTo();
+
+      if (!visitedStates.contains(targetState)
+          && canMatchCharacter(targetState, character, visitedStates)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  // checks if the concatenation of two token values has to be separated (i.e., if it is not lexed
+  // as the two original tokens)
+  static final boolean needsSeparator(final List<LexerSymbol> lexerSymbols, final Lexer lexer,
+      final String string, final LexerSymbol firstSymbol, final LexerSymbol secondSymbol) {
+    for (final LexerSymbol otherSymbol : lexerSymbols) {
+      if (otherSymbol == firstSymbol) {
+        continue;
+      }
+
+      final NFA otherNFA = lexer.getNFA(otherSymbol);
+
+      if (otherNFA.isPossiblePrefix(string)) {
+        return true;
+      }
+    }
+
+    final TokenStream tokens;
+    {
+      try {
+        tokens = lexer.lex(string, true);
+      } catch (final Exception exception) {
+        return true;
+      }
+    }
+
+    if (tokens.numberOfTokens() != 2) {
+      return true;
+    }
+
+    final Token lexedFirstToken = tokens.at(0);
+    final Token lexedLastToken = tokens.at(tokens.numberOfTokens() - 1);
+
+    return lexedFirstToken.getTokenSymbol() != firstSymbol
+        || lexedLastToken.getTokenSymbol() != secondSymbol;
+  }
+
+}
@@ -2,157 +2,110 @@ package i2.act.fuzzer.util;
 
 import i2.act.packrat.Lexer;
 import i2.act.packrat.Token;
-import i2.act.packrat.TokenStream;
 import i2.act.packrat.cst.Node;
 import i2.act.packrat.cst.TerminalNode;
-import i2.act.packrat.cst.visitors.SyntaxTreeVisitor;
-import i2.act.packrat.nfa.NFA;
-import i2.act.packrat.nfa.NFAState;
-import i2.act.packrat.nfa.Transition;
 import i2.act.peg.ast.Grammar;
 import i2.act.peg.symbols.LexerSymbol;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.function.Consumer;
 
 public final class TokenJoiner {
 
-  private final Grammar grammar;
-  private final Lexer lexer;
-  private final String separator;
+  // number of decisions for pairs of token values that are kept in 'dynamicDecisions'
+  public static final int DEFAULT_CACHE_SIZE = 4096;
 
-  private final Map<LexerSymbol, Map<LexerSymbol, Boolean>> needsSeparator;
-
-  public TokenJoiner(final Grammar grammar, final String separator) {
-    this.grammar = grammar;
-    this.lexer = Lexer.forGrammar(grammar);
-    this.separator = separator;
-
-    this.needsSeparator = new HashMap<LexerSymbol, Map<LexerSymbol, Boolean>>();
-    determineSeparators(grammar);
-  }
+  private static final class ValuePair {
 
-  private final void determineSeparators(final Grammar grammar) {
-    for (final LexerSymbol firstSymbol : grammar.getLexerSymbols()) {
-      final Map<LexerSymbol, Boolean> firstMap = new HashMap<>();
-      this.needsSeparator.put(firstSymbol, firstMap);
+    private final int firstSymbol;
+    private final String firstValue;
+    private final int secondSymbol;
+    private final String secondValue;
 
-      final NFA firstNFA = this.lexer.getNFA(firstSymbol);
-      assert (firstNFA != null);
+    // computed once (without boxing or a varargs array), the pair is only used as a key
+    private final int hashCode;
 
-      if (firstNFA.hasLiteralString()) {
-        final String firstLiteral = firstNFA.getLiteralString();
-        boolean allOthersDoNotMatch = true;
+    public ValuePair(final int firstSymbol, final String firstValue, final int secondSymbol,
+        final String secondValue) {
+      this.firstSymbol = firstSymbol;
+      this.firstValue = firstValue;
+      this.secondSymbol = secondSymbol;
+      this.secondValue = secondValue;
 
-        for (final LexerSymbol secondSymbol : grammar.getLexerSymbols()) {
-          if (firstSymbol == secondSymbol) {
-            continue;
-          }
+      int hashCode = firstSymbol;
+      hashCode = 31 * hashCode + firstValue.hashCode();
+      hashCode = 31 * hashCode + secondSymbol;
+      hashCode = 31 * hashCode + secondValue.hashCode();
 
-          final NFA secondNFA = this.lexer.getNFA(secondSymbol);
-          if (secondNFA.isPossiblePrefix(firstLiteral)) {
-            allOthersDoNotMatch = false;
-            break;
-          }
-        }
+      this.hashCode = hashCode;
+    }
 
-        if (allOthersDoNotMatch) {
-          for (final LexerSymbol secondSymbol : grammar.getLexerSymbols()) {
-            firstMap.put(secondSymbol, false);
-          }
-        } else {
-          for (final LexerSymbol secondSymbol : grammar.getLexerSymbols()) {
-            if (firstSymbol == secondSymbol) {
-              continue;
-            }
-
-            final NFA secondNFA = this.lexer.getNFA(secondSymbol);
-            if (secondNFA.isPossiblePrefix(firstLiteral)) {
-              firstMap.put(secondSymbol, true);
-            }
-          }
-        }
+    @Override
+    public final boolean equals(final Object other) {
+      if (!(other instanceof ValuePair)) {
+        return false;
       }
 
-      for (final LexerSymbol secondSymbol : grammar.getLexerSymbols()) {
-        if (firstMap.containsKey(secondSymbol)) {
-          // already handled above
-          continue;
-        }
-
-        final NFA secondNFA = this.lexer.getNFA(secondSymbol);
-        assert (secondNFA != null);
+      final ValuePair otherPair = (ValuePair) other;
 
-        if (firstNFA.hasLiteralString() && secondNFA.hasLiteralString()) {
-          final String joined = firstNFA.getLiteralString() + secondNFA.getLiteralString();
-          final boolean needsSeparator = needsSeparator(joined, firstSymbol, secondSymbol);
-
-          firstMap.put(secondSymbol, needsSeparator);
-        }
-      }
+      return this.firstSymbol == otherPair.firstSymbol
+          && this.secondSymbol == otherPair.secondSymbol
+          && this.firstValue.equals(otherPair.firstValue)
+          && this.secondValue.equals(otherPair.secondValue);
     }
 
-    for (final LexerSymbol secondSymbol : grammar.getLexerSymbols()) {
-      final NFA secondNFA = this.lexer.getNFA(secondSymbol);
+    @Override
+    public final int hashCode() {
+      return this.hashCode;
+    }
 
-      if (!secondNFA.hasLiteralString()) {
-        continue;
-      }
+  }
 
-      final String secondLiteral = secondNFA.getLiteralString();
-      boolean allOthersDoNotMatch = true;
+  private final Grammar grammar;
+  private final Lexer lexer;
+  private final String separator;
 
-      firstSymbol: for (final LexerSymbol firstSymbol : grammar.getLexerSymbols()) {
-        if (firstSymbol == secondSymbol || firstSymbol.isSkippedToken()) {
-          continue;
-        }
+  private final SeparatorMatrix separators;
 
-        final NFA firstNFA = this.lexer.getNFA(firstSymbol);
+  // decisions for undecided symbol pairs (the values are joined and lexed for each decision);
+  // bounded, the least recently used decision is evicted
+  private final Map<ValuePair, Boolean> dynamicDecisions;
 
-        for (final char character : secondLiteral.toCharArray()) {
-          if (canMatchCharacter(firstNFA, character)) {
-            allOthersDoNotMatch = false;
-            break firstSymbol;
-          }
-        }
-      }
+  public TokenJoiner(final Grammar grammar, final String separator) {
+    this(grammar, Lexer.forGrammar(grammar), separator);
+  }
 
-      if (allOthersDoNotMatch) {
-        for (final LexerSymbol firstSymbol : grammar.getLexerSymbols()) {
-          if (!this.needsSeparator.get(firstSymbol).containsKey(secondSymbol)) {
-            this.needsSeparator.get(firstSymbol).put(secondSymbol, false);
-          }
-        }
-      }
-    }
+  public TokenJoiner(final Grammar grammar, final Lexer lexer, final String separator) {
+    this(grammar, lexer, separator, SeparatorMatrix.compute(grammar, lexer));
   }
 
-  private final boolean canMatchCharacter(final NFA nfa, final char character) {
-    final Set<NFAState> visitedStates = new HashSet<>();
-    return canMatchCharacter(nfa.getStartState(), character, visitedStates);
+  // the lexer and the separator matrix may be shared by multiple joiners (e.g., one per thread)
+  public TokenJoiner(final Grammar grammar, final Lexer lexer, final String separator,
+      final SeparatorMatrix separators) {
+    this(grammar, lexer, separator, separators, DEFAULT_CACHE_SIZE);
   }
 
-  private final boolean canMatchCharacter(final NFAState state, final char character,
-      final Set<NFAState> visitedStates) {
-    visitedStates.add(state);
+  public TokenJoiner(final Grammar grammar, final Lexer lexer, final String separator,
+      final SeparatorMatrix separators, final int cacheSize) {
+    this.grammar = grammar;
+    this.lexer = lexer;
+    this.separator = separator;
 
-    for (final Transition transition : state.getTransitions()) {
-      if (!transition.isEpsilonTransition() && transition.matches(character)) {
-        return true;
-      }
+    this.separators = separators;
 
-      final NFAState targetState = transition.getTo();
+    this.dynamicDecisions = new LinkedHashMap<ValuePair, Boolean>(16, 0.75f, true) {
 
-      if (!visitedStates.contains(targetState)
-          && canMatchCharacter(targetState, character, visitedStates)) {
-        return true;
+      @Override
+      protected final boolean removeEldestEntry(final Map.Entry<ValuePair, Boolean> eldest) {
+        return size() > cacheSize;
       }
-    }
 
-    return false;
+    };
   }
 
   private final boolean needsSeparator(final Token firstToken, final Token secondToken) {
@@ -171,46 +124,31 @@ public final class TokenJoiner {
       return true;
     }
 
-    if (this.needsSeparator.get(firstSymbol).containsKey(secondSymbol)) {
-      return this.needsSeparator.get(firstSymbol).get(secondSymbol);
-    }
+    final int firstId = this.separators.getId(firstSymbol);
+    final int secondId = this.separators.getId(secondSymbol);
 
-    final String joined = firstToken.getValue() + secondToken.getValue();
-    return needsSeparator(joined, firstToken.getTokenSymbol(), secondToken.getTokenSymbol());
-  }
+    final byte decision = this.separators.get(firstId, secondId);
 
-  private final boolean needsSeparator(final String string, final LexerSymbol firstSymbol,
-      final LexerSymbol secondSymbol) {
-    for (final LexerSymbol otherSymbol : this.grammar.getLexerSymbols()) {
-      if (otherSymbol == firstSymbol) {
-        continue;
-      }
+    if (decision != SeparatorMatrix.UNDECIDED) {
+      return decision == SeparatorMatrix.SEPARATOR;
+    }
 
-      final NFA otherNFA = this.lexer.getNFA(otherSymbol);
+    final ValuePair valuePair =
+        new ValuePair(firstId, firstToken.getValue(), secondId, secondToken.getValue());
 
-      if (otherNFA.isPossiblePrefix(string)) {
-        return true;
-      }
-    }
+    final Boolean dynamicDecision = this.dynamicDecisions.get(valuePair);
 
-    final TokenStream tokens;
-    {
-      try {
-        tokens = this.lexer.lex(string, true);
-      } catch (final Exception exception) {
-        return true;
-      }
+    if (dynamicDecision != null) {
+      return dynamicDecision;
     }
 
-    if (tokens.numberOfTokens() != 2) {
-      return true;
-    }
+    final String joined = firstToken.getValue() + secondToken.getValue();
+    final boolean needsSeparator = SeparatorMatrix.needsSeparator(
+        this.grammar.getLexerSymbols(), this.lexer, joined, firstSymbol, secondSymbol);
 
-    final Token lexedFirstToken = tokens.at(0);
-    final Token lexedLastToken = tokens.at(tokens.numberOfTokens() - 1);
+    this.dynamicDecisions.put(valuePair, needsSeparator);
 
-    return lexedFirstToken.getTokenSymbol() != firstSymbol
-        || lexedLastToken.getTokenSymbol() != secondSymbol;
+    return needsSeparator;
   }
 
   public final String join(final List<Token> tokens) {
@@ -219,16 +157,10 @@ public final class TokenJoiner {
     }
 
     final StringBuilder builder = new StringBuilder();
+    final Sink sink = sink(builder);
 
-    Token lastToken = null;
     for (final Token token : tokens) {
-      if (needsSeparator(lastToken, token)) {
-        builder.append(this.separator);
-      }
-
-      builder.append(token.getValue());
-
-      lastToken = token;
+      sink.accept(token);
     }
 
     return builder.toString();
@@ -236,29 +168,61 @@ public final class TokenJoiner {
 
   public final String join(final Node<?> syntaxTree) {
     final StringBuilder builder = new StringBuilder();
+    final Sink sink = sink(builder);
 
-    syntaxTree.accept(new SyntaxTreeVisitor<Void, Void>() {
+    // pre-order traversal with an explicit stack (deep trees would overflow the call stack)
+    final Deque<Node<?>> worklist = new ArrayDeque<>();
+    worklist.push(syntaxTree);
 
-      private Token lastToken = null;
+    while (!worklist.isEmpty()) {
+      final Node<?> node = worklist.pop();
 
-      @Override
-      public final Void visit(final TerminalNode node, final Void parameter) {
-        final Token token = node.getToken();
+      if (node instanceof TerminalNode) {
+        sink.accept(((TerminalNode) node).getToken());
+      } else {
+        final List<Node<?>> children = node.getChildren();
 
-        if (needsSeparator(this.lastToken, token)) {
-          builder.append(TokenJoiner.this.separator);
+        for (int index = children.size() - 1; index >= 0; --index) {
+          worklist.push(children.get(index));
         }
+      }
+    }
+
+    return builder.toString();
+  }
+
+  // returns a sink that directly appends each token (and a separator if required) to 'out'; a new
+  // sink has to be used for each program
+  public final Sink sink(final Appendable out) {
+    return new Sink(out);
+  }
+
+  public final class Sink implements Consumer<Token> {
 
-        builder.append(token.getValue());
+    private final Appendable out;
 
-        this.lastToken = token;
+    private Token lastToken;
 
-        return null;
+    private Sink(final Appendable out) {
+      this.out = out;
+      this.lastToken = null;
+    }
+
+    @Override
+    public final void accept(final Token token) {
+      try {
+        if (needsSeparator(this.lastToken, token)) {
+          this.out.append(TokenJoiner.this.separator);
+        }
+
+        this.out.append(token.getValue());
+      } catch (final IOException exception) {
+        throw new RuntimeException("unable to write token", exception);
       }
 
-    }, null);
+      this.lastToken = token;
+    }
 
-    return builder.toString();
   }
 
 }
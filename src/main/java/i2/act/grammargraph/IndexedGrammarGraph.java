@@ -0,0 +1,387 @@
+package i2.act.grammargraph;
+
+import i2.act.grammargraph.GrammarGraphEdge.Alternative;
+import i2.act.grammargraph.GrammarGraphEdge.Element;
+import i2.act.grammargraph.GrammarGraphEdge.Element.Quantifier;
+import i2.act.grammargraph.GrammarGraphNode.Choice;
+import i2.act.grammargraph.GrammarGraphNode.Sequence;
+import i2.act.grammargraph.properties.GrammarAnalysis;
+import i2.act.peg.symbols.LexerSymbol;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// An immutable, "compiled" view of a grammar graph: each Choice, Sequence, Alternative, and Element
+// is assigned a dense id, and the successors, weights, and the results of the property computations
+// are stored in primitive arrays that are indexed by these ids. The arrays that are returned by
+// 'getAlternatives' and 'getElements' are shared (to avoid copies in the hot loops of the fuzzers)
+// and must not be modified by the callers.
+public final class IndexedGrammarGraph {
+
+  public static final int UNKNOWN = Integer.MAX_VALUE;
+
+  public static final IndexedGrammarGraph fromGrammarGraph(final GrammarGraph grammarGraph) {
+    final GrammarAnalysis analysis = GrammarAnalysis.forGrammarGraph(grammarGraph);
+
+    final Map<GrammarGraphNode<?,?>, Integer> minHeights = analysis.getMinHeights();
+    final Map<GrammarGraphNode<?,?>, Integer> minSizes = analysis.getMinSizes();
+
+    return new IndexedGrammarGraph(grammarGraph,
+        toArray(grammarGraph, minHeights, Choice.class),
+        toArray(grammarGraph, minSizes, Choice.class),
+        toArray(grammarGraph, minHeights, Sequence.class),
+        toArray(grammarGraph, minSizes, Sequence.class));
+  }
+
+  // uses the results of previous property computations (e.g., from a compiled grammar) that are
+  // indexed by the ids of the choices and sequences
+  public static final IndexedGrammarGraph fromGrammarGraph(final GrammarGraph grammarGraph,
+      final int[] choiceMinHeights, final int[] choiceMinSizes, final int[] sequenceMinHeights,
+      final int[] sequenceMinSizes) {
+    final int numberOfChoices = count(grammarGraph, Choice.class);
+    final int numberOfSequences = count(grammarGraph, Sequence.class);
+
+    if (choiceMinHeights.length != numberOfChoices || choiceMinSizes.length != numberOfChoices
+        || sequenceMinHeights.length != numberOfSequences
+        || sequenceMinSizes.length != numberOfSequences) {
+      throw new RuntimeException("precomputed properties do not match the grammar graph");
+    }
+
+    return new IndexedGrammarGraph(grammarGraph,
+        choiceMinHeights, choiceMinSizes, sequenceMinHeights, sequenceMinSizes);
+  }
+
+  // ids are assigned in the iteration order of the grammar graph
+  private static final int[] toArray(final GrammarGraph grammarGraph,
+      final Map<GrammarGraphNode<?,?>, Integer> values,
+      final Class<? extends GrammarGraphNode<?,?>> nodeClass) {
+    final int[] array = new int[count(grammarGraph, nodeClass)];
+    int id = 0;
+
+    for (final GrammarGraphNode<?,?> node : grammarGraph) {
+      if (nodeClass.isInstance(node)) {
+        assert (values.containsKey(node));
+        array[id++] = values.get(node);
+      }
+    }
+
+    return array;
+  }
+
+  private static final int count(final GrammarGraph grammarGraph,
+      final Class<? extends GrammarGraphNode<?,?>> nodeClass) {
+    int count = 0;
+
+    for (final GrammarGraphNode<?,?> node : grammarGraph) {
+      if (nodeClass.isInstance(node)) {
+        ++count;
+      }
+    }
+
+    return count;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+
+  private final GrammarGraph grammarGraph;
+
+  private final Choice[] choices;
+  private final Sequence[] sequences;
+  private final Alternative[] alternatives;
+  private final Element[] elements;
+
+  // identity-based (i.e., neither 'equals()' nor 'hashCode()' of the nodes and edges is called)
+  private final Map<Choice, Integer> choiceIds;
+  private final Map<Sequence, Integer> sequenceIds;
+  private final Map<Alternative, Integer> alternativeIds;
+  private final Map<Element, Integer> elementIds;
+
+  private final int rootChoice;
+
+  // ~~ choices ~~
+
+  private final int[][] choiceAlternatives;
+  private final boolean[] choiceIsTerminal;
+  private final boolean[] choiceIsProduction;
+  private final int[] choiceMinHeights;
+  private final int[] choiceMinSizes;
+
+  // ~~ sequences ~~
+
+  private final int[][] sequenceElements;
+  private final int[] sequenceMinHeights;
+  private final int[] sequenceMinSizes;
+
+  // ~~ alternatives ~~
+
+  private final int[] alternativeSources;
+  private final int[] alternativeTargets;
+  private final int[] alternativeWeights;
+
+  // ~~ elements ~~
+
+  private final int[] elementSources;
+  private final int[] elementTargets;
+  private final int[] elementWeights;
+  private final Quantifier[] elementQuantifiers;
+
+  private IndexedGrammarGraph(final GrammarGraph grammarGraph, final int[] choiceMinHeights,
+      final int[] choiceMinSizes, final int[] sequenceMinHeights, final int[] sequenceMinSizes) {
+    this.grammarGraph = grammarGraph;
+
+    // assign ids to nodes
+    final List<Choice> choices = new ArrayList<>();
+    final List<Sequence> sequences = new ArrayList<>();
+
+    this.choiceIds = new IdentityHashMap<>();
+    this.sequenceIds = new IdentityHashMap<>();
+
+    for (final GrammarGraphNode<?,?> node : grammarGraph) {
+      if (node instanceof Choice) {
+        this.choiceIds.put((Choice) node, choices.size());
+        choices.add((Choice) node);
+      } else {
+        assert (node instanceof Sequence);
+
+        this.sequenceIds.put((Sequence) node, sequences.size());
+        sequences.add((Sequence) node);
+      }
+    }
+
+    this.choices = choices.toArray(new Choice[choices.size()]);
+    this.sequences = sequences.toArray(new Sequence[sequences.size()]);
+
+    // assign ids to edges
+    final List<Alternative> alternatives = new ArrayList<>();
+    final List<Element> elements = new ArrayList<>();
+
+    this.alternativeIds = new IdentityHashMap<>();
+    this.elementIds = new IdentityHashMap<>();
+
+    for (final Choice choice : this.choices) {
+      for (final Alternative alternative : choice.getSuccessorEdges()) {
+        this.alternativeIds.put(alternative, alternatives.size());
+        alternatives.add(alternative);
+      }
+    }
+
+    for (final Sequence sequence : this.sequences) {
+      for (final Element element : sequence.getSuccessorEdges()) {
+        this.elementIds.put(element, elements.size());
+        elements.add(element);
+      }
+    }
+
+    this.alternatives = alternatives.toArray(new Alternative[alternatives.size()]);
+    this.elements = elements.toArray(new Element[elements.size()]);
+
+    this.rootChoice = getId(grammarGraph.getRootNode());
+
+    // choices
+    this.choiceAlternatives = new int[this.choices.length][];
+    this.choiceIsTerminal = new boolean[this.choices.length];
+    this.choiceIsProduction = new boolean[this.choices.length];
+    this.choiceMinHeights = choiceMinHeights;
+    this.choiceMinSizes = choiceMinSizes;
+
+    for (int id = 0; id < this.choices.length; ++id) {
+      final Choice choice = this.choices[id];
+
+      this.choiceAlternatives[id] = choice.getSuccessorEdges().stream()
+          .mapToInt(this::getId)
+          .toArray();
+
+      this.choiceIsTerminal[id] = choice.getGrammarSymbol() instanceof LexerSymbol;
+      this.choiceIsProduction[id] =
+          choice.hasGrammarSymbol() && choice.getGrammarSymbol().getProduction() != null;
+    }
+
+    // sequences
+    this.sequenceElements = new int[this.sequences.length][];
+    this.sequenceMinHeights = sequenceMinHeights;
+    this.sequenceMinSizes = sequenceMinSizes;
+
+    for (int id = 0; id < this.sequences.length; ++id) {
+      final Sequence sequence = this.sequences[id];
+
+      this.sequenceElements[id] = sequence.getSuccessorEdges().stream()
+          .mapToInt(this::getId)
+          .toArray();
+    }
+
+    // alternatives
+    this.alternativeSources = new int[this.alternatives.length];
+    this.alternativeTargets = new int[this.alternatives.length];
+    this.alternativeWeights = new int[this.alternatives.length];
+
+    for (int id = 0; id < this.alternatives.length; ++id) {
+      final Alternative alternative = this.alternatives[id];
+
+      this.alternativeSources[id] = getId(alternative.getSource());
+      this.alternativeTargets[id] = getId(alternative.getTarget());
+      this.alternativeWeights[id] = alternative.getWeight();
+    }
+
+    // elements
+    this.elementSources = new int[this.elements.length];
+    this.elementTargets = new int[this.elements.length];
+    this.elementWeights = new int[this.elements.length];
+    this.elementQuantifiers = new Quantifier[this.elements.length];
+
+    for (int id = 0; id < this.elements.length; ++id) {
+      final Element element = this.elements[id];
+
+      this.elementSources[id] = getId(element.getSource());
+      this.elementTargets[id] = getId(element.getTarget());
+      this.elementWeights[id] = element.getWeight();
+      this.elementQuantifiers[id] = element.getQuantifier();
+    }
+  }
+
+  public final GrammarGraph getGrammarGraph() {
+    return this.grammarGraph;
+  }
+
+  public final int getRootChoice() {
+    return this.rootChoice;
+  }
+
+  // ~~ ids ~~
+
+  public final int getId(final Choice choice) {
+    assert (this.choiceIds.containsKey(choice));
+    return this.choiceIds.get(choice);
+  }
+
+  public final int getId(final Sequence sequence) {
+    assert (this.sequenceIds.containsKey(sequence));
+    return this.sequenceIds.get(sequence);
+  }
+
+  public final int getId(final Alternative alternative) {
+    assert (this.alternativeIds.containsKey(alternative));
+    return this.alternativeIds.get(alternative);
+  }
+
+  public final int getId(final Element element) {
+    assert (this.elementIds.containsKey(element));
+    return this.elementIds.get(element);
+  }
+
+  // ~~ choices ~~
+
+  public final int numberOfChoices() {
+    return this.choices.length;
+  }
+
+  public final Choice getChoice(final int choice) {
+    return this.choices[choice];
+  }
+
+  // the returned array must not be modified
+  public final int[] getAlternatives(final int choice) {
+    return this.choiceAlternatives[choice];
+  }
+
+  public final boolean isTerminal(final int choice) {
+    return this.choiceIsTerminal[choice];
+  }
+
+  public final boolean isProduction(final int choice) {
+    return this.choiceIsProduction[choice];
+  }
+
+  public final int getChoiceMinHeight(final int choice) {
+    return this.choiceMinHeights[choice];
+  }
+
+  public final int getChoiceMinSize(final int choice) {
+    return this.choiceMinSizes[choice];
+  }
+
+  // ~~ sequences ~~
+
+  public final int numberOfSequences() {
+    return this.sequences.length;
+  }
+
+  public final Sequence getSequence(final int sequence) {
+    return this.sequences[sequence];
+  }
+
+  // the returned array must not be modified
+  public final int[] getElements(final int sequence) {
+    return this.sequenceElements[sequence];
+  }
+
+  public final int getSequenceMinHeight(final int sequence) {
+    return this.sequenceMinHeights[sequence];
+  }
+
+  public final int getSequenceMinSize(final int sequence) {
+    return this.sequenceMinSizes[sequence];
+  }
+
+  // ~~ alternatives ~~
+
+  public final int numberOfAlternatives() {
+    return this.alternatives.length;
+  }
+
+  public final Alternative getAlternative(final int alternative) {
+    return this.alternatives[alternative];
+  }
+
+  public final int getAlternativeSource(final int alternative) {
+    return this.alternativeSources[alternative];
+  }
+
+  public final int getAlternativeTarget(final int alternative) {
+    return this.alternativeTargets[alternative];
+  }
+
+  public final int getAlternativeWeight(final int alternative) {
+    return this.alternativeWeights[alternative];
+  }
+
+  public final int getAlternativeMinHeight(final int alternative) {
+    return this.sequenceMinHeights[this.alternativeTargets[alternative]];
+  }
+
+  public final int getAlternativeMinSize(final int alternative) {
+    return this.sequenceMinSizes[this.alternativeTargets[alternative]];
+  }
+
+  // ~~ elements ~~
+
+  public final int numberOfElements() {
+    return this.elements.length;
+  }
+
+  public final Element getElement(final int element) {
+    return this.elements[element];
+  }
+
+  public final int getElementSource(final int element) {
+    return this.elementSources[element];
+  }
+
+  public final int getElementTarget(final int element) {
+    return this.elementTargets[element];
+  }
+
+  public final int getElementWeight(final int element) {
+    return this.elementWeights[element];
+  }
+
+  public final Quantifier getElementQuantifier(final int element) {
+    return this.elementQuantifiers[element];
+  }
+
+  public final int getElementMinHeight(final int element) {
+    return this.choiceMinHeights[this.elementTargets[element]];
+  }
+
+}
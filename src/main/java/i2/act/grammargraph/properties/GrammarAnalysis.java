@@ -0,0 +1,133 @@
+package i2.act.grammargraph.properties;
+
+import i2.act.grammargraph.GrammarGraph;
+import i2.act.grammargraph.GrammarGraphNode;
+import i2.act.grammargraph.IndexedGrammarGraph;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+// the results of the property computations for a grammar graph; each property is only computed
+// when it is requested for the first time, and the results are shared by all components (and
+// threads) that work on the same grammar graph
+//
+// the results must not be modified by the callers
+public final class GrammarAnalysis {
+
+  // the analyses are dropped together with their grammar graphs (thus, an analysis must not keep
+  // its grammar graph alive)
+  private static final Map<GrammarGraph, GrammarAnalysis> analyses = new WeakHashMap<>();
+
+  private final WeakReference<GrammarGraph> grammarGraph;
+
+  private Map<GrammarGraphNode<?,?>, Integer> minHeights;
+  private Map<GrammarGraphNode<?,?>, Integer> minSizes;
+
+  private Map<GrammarGraphNode<?,?>, Boolean> reachable;
+  private Map<GrammarGraphNode<?,?>, Boolean> reachableWithoutSkippedTokens;
+
+  private Map<GrammarGraphNode<?,?>, Map<GrammarGraphNode<?,?>, Integer>> reachableNodes;
+
+  private ReachableAlternatives reachableAlternatives;
+
+  private GrammarAnalysis(final GrammarGraph grammarGraph) {
+    this.grammarGraph = new WeakReference<>(grammarGraph);
+  }
+
+  public static final GrammarAnalysis forGrammarGraph(final GrammarGraph grammarGraph) {
+    synchronized (analyses) {
+      GrammarAnalysis analysis = analyses.get(grammarGraph);
+
+      if (analysis == null) {
+        analysis = new GrammarAnalysis(grammarGraph);
+        analyses.put(grammarGraph, analysis);
+      }
+
+      return analysis;
+    }
+  }
+
+  private final GrammarGraph getGrammarGraph() {
+    final GrammarGraph grammarGraph = this.grammarGraph.get();
+    assert (grammarGraph != null);
+
+    return grammarGraph;
+  }
+
+  public final synchronized Map<GrammarGraphNode<?,?>, Integer> getMinHeights() {
+    if (this.minHeights == null) {
+      this.minHeights = Collections.unmodifiableMap(
+          MinHeightComputation.computeMinHeights(getGrammarGraph()));
+    }
+
+    return this.minHeights;
+  }
+
+  public final synchronized Map<GrammarGraphNode<?,?>, Integer> getMinSizes() {
+    if (this.minSizes == null) {
+      this.minSizes = Collections.unmodifiableMap(
+          MinSizeComputation.computeMinSizes(getGrammarGraph()));
+    }
+
+    return this.minSizes;
+  }
+
+  public final synchronized Map<GrammarGraphNode<?,?>, Boolean> getReachable(
+      final boolean considerSkippedTokensReachable) {
+    if (considerSkippedTokensReachable) {
+      if (this.reachable == null) {
+        this.reachable = Collections.unmodifiableMap(
+            ReachableComputation.computeReachable(getGrammarGraph(), true));
+      }
+
+      return this.reachable;
+    } else {
+      if (this.reachableWithoutSkippedTokens == null) {
+        this.reachableWithoutSkippedTokens = Collections.unmodifiableMap(
+            ReachableComputation.computeReachable(getGrammarGraph(), false));
+      }
+
+      return this.reachableWithoutSkippedTokens;
+    }
+  }
+
+  public final synchronized Map<GrammarGraphNode<?,?>, Map<GrammarGraphNode<?,?>, Integer>>
+      getReachableNodes() {
+    if (this.reachableNodes == null) {
+      this.reachableNodes = Collections.unmodifiableMap(
+          ReachableNodesComputation.computeReachableNodes(getGrammarGraph(), getMinHeights()));
+    }
+
+    return this.reachableNodes;
+  }
+
+  // the ids of all indexed grammar graphs for the same grammar graph are the same
+  public final synchronized ReachableAlternatives getReachableAlternatives(
+      final IndexedGrammarGraph indexedGraph) {
+    assert (indexedGraph.getGrammarGraph() == getGrammarGraph());
+
+    if (this.reachableAlternatives == null) {
+      this.reachableAlternatives = ReachableAlternatives.compute(indexedGraph);
+    }
+
+    return this.reachableAlternatives;
+  }
+
+  // e.g., loaded from a compiled grammar (for an indexed grammar graph of this grammar graph)
+  public final synchronized void setReachableAlternatives(
+      final ReachableAlternatives reachableAlternatives) {
+    this.reachableAlternatives = reachableAlternatives;
+  }
+
+  public final synchronized int getMinMaxHeight() {
+    if (this.reachableAlternatives == null) {
+      return getReachableAlternatives(IndexedGrammarGraph.fromGrammarGraph(getGrammarGraph()))
+          .getMinMaxHeight();
+    }
+
+    return this.reachableAlternatives.getMinMaxHeight();
+  }
+
+}
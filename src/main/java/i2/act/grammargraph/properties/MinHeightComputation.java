@@ -12,18 +12,27 @@ import java.util.Map;
 
 public final class MinHeightComputation extends PropertyComputation<Integer> {
 
+  private static final PropertyComputation.Direction DIRECTION =
+      PropertyComputation.Direction.BACKWARDS;
+
   private static final Integer UNKNOWN = Integer.MAX_VALUE;
 
   public static final Map<GrammarGraphNode<?,?>, Integer> computeMinHeights(
       final GrammarGraph grammarGraph) {
     final MinHeightComputation computation = new MinHeightComputation();
-    return computation.compute(grammarGraph);
+    return WorklistSolver.solve(computation, DIRECTION, grammarGraph);
+  }
+
+  // j-PEG's generic fixpoint iteration (only used to check the results of the 'WorklistSolver')
+  static final Map<GrammarGraphNode<?,?>, Integer> computeMinHeightsIteratively(
+      final GrammarGraph grammarGraph) {
+    return new MinHeightComputation().compute(grammarGraph);
   }
 
   // -----------------------------------------------------------------------------------------------
 
   private MinHeightComputation() {
-    super(PropertyComputation.Direction.BACKWARDS);
+    super(DIRECTION);
   }
 
   private static final boolean requiresNode(final Choice choice) {
@@ -8,9 +8,12 @@ import java.util.Map;
 public final class MinMaxHeightComputation {
 
   public static final int computeMinMaxHeight(final GrammarGraph grammarGraph) {
-    final Map<GrammarGraphNode<?,?>, Map<GrammarGraphNode<?,?>, Integer>> reachableNodes =
-        ReachableNodesComputation.computeReachableNodes(grammarGraph);
+    return computeMinMaxHeight(grammarGraph,
+        ReachableNodesComputation.computeReachableNodes(grammarGraph));
+  }
 
+  public static final int computeMinMaxHeight(final GrammarGraph grammarGraph,
+      final Map<GrammarGraphNode<?,?>, Map<GrammarGraphNode<?,?>, Integer>> reachableNodes) {
     final GrammarGraphNode<?,?> rootNode = grammarGraph.getRootNode();
     assert (reachableNodes.containsKey(rootNode));
 
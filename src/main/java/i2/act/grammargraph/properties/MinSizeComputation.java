@@ -12,18 +12,27 @@ import java.util.Map;
 
 public final class MinSizeComputation extends PropertyComputation<Integer> {
 
+  private static final PropertyComputation.Direction DIRECTION =
+      PropertyComputation.Direction.BACKWARDS;
+
   private static final Integer UNKNOWN = Integer.MAX_VALUE;
 
   public static final Map<GrammarGraphNode<?,?>, Integer> computeMinSizes(
       final GrammarGraph grammarGraph) {
     final MinSizeComputation computation = new MinSizeComputation();
-    return computation.compute(grammarGraph);
+    return WorklistSolver.solve(computation, DIRECTION, grammarGraph);
+  }
+
+  // j-PEG's generic fixpoint iteration (only used to check the results of the 'WorklistSolver')
+  static final Map<GrammarGraphNode<?,?>, Integer> computeMinSizesIteratively(
+      final GrammarGraph grammarGraph) {
+    return new MinSizeComputation().compute(grammarGraph);
   }
 
   // -----------------------------------------------------------------------------------------------
 
   private MinSizeComputation() {
-    super(PropertyComputation.Direction.BACKWARDS);
+    super(DIRECTION);
   }
 
   @Override
@@ -0,0 +1,71 @@
+package i2.act.grammargraph.properties;
+
+import i2.act.grammargraph.GrammarGraphEdge.Element.Quantifier;
+import i2.act.grammargraph.IndexedGrammarGraph;
+
+import java.util.Arrays;
+
+// the minimal number of tokens of each choice and sequence of an indexed grammar graph (like the
+// 'MinSizeComputation', but only counts the leaves of the syntax trees)
+public final class MinTokensComputation {
+
+  public static final int UNKNOWN = Integer.MAX_VALUE;
+
+  public static final int[] computeChoiceMinTokens(final IndexedGrammarGraph indexedGraph) {
+    final int[] choiceMinTokens = new int[indexedGraph.numberOfChoices()];
+    final int[] sequenceMinTokens = new int[indexedGraph.numberOfSequences()];
+
+    computeMinTokens(indexedGraph, choiceMinTokens, sequenceMinTokens);
+
+    return choiceMinTokens;
+  }
+
+  public static final void computeMinTokens(final IndexedGrammarGraph indexedGraph,
+      final int[] choiceMinTokens, final int[] sequenceMinTokens) {
+    assert (choiceMinTokens.length == indexedGraph.numberOfChoices());
+    assert (sequenceMinTokens.length == indexedGraph.numberOfSequences());
+
+    Arrays.fill(choiceMinTokens, UNKNOWN);
+    Arrays.fill(sequenceMinTokens, UNKNOWN);
+
+    boolean changed = true;
+
+    while (changed) {
+      changed = false;
+
+      for (int sequence = 0; sequence < sequenceMinTokens.length; ++sequence) {
+        long minTokens = 0;
+
+        for (final int element : indexedGraph.getElements(sequence)) {
+          final Quantifier quantifier = indexedGraph.getElementQuantifier(element);
+
+          if (quantifier == Quantifier.QUANT_OPTIONAL || quantifier == Quantifier.QUANT_STAR) {
+            continue;
+          }
+
+          minTokens += choiceMinTokens[indexedGraph.getElementTarget(element)];
+        }
+
+        if (minTokens < sequenceMinTokens[sequence]) {
+          sequenceMinTokens[sequence] = (int) minTokens;
+          changed = true;
+        }
+      }
+
+      for (int choice = 0; choice < choiceMinTokens.length; ++choice) {
+        int minTokens = (indexedGraph.isTerminal(choice)) ? (1) : (UNKNOWN);
+
+        for (final int alternative : indexedGraph.getAlternatives(choice)) {
+          minTokens = Math.min(minTokens,
+              sequenceMinTokens[indexedGraph.getAlternativeTarget(alternative)]);
+        }
+
+        if (minTokens < choiceMinTokens[choice]) {
+          choiceMinTokens[choice] = minTokens;
+          changed = true;
+        }
+      }
+    }
+  }
+
+}
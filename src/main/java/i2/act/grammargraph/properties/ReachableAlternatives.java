@@ -0,0 +1,273 @@
+package i2.act.grammargraph.properties;
+
+import i2.act.grammargraph.IndexedGrammarGraph;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+// for each alternative, the alternatives that are reachable from it, together with the min. height
+// that a subtree for the alternative requires to contain them (same results as the
+// 'ReachableNodesComputation', but on the dense ids of an indexed grammar graph and with primitive
+// arrays instead of maps)
+//
+// the reachable alternatives of an alternative are sorted by their min. heights, such that a search
+// for an alternative that fits into a certain height can stop at the first one that does not
+public final class ReachableAlternatives {
+
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  private final int[][] reachableAlternatives;
+  private final int[][] minHeights;
+
+  private final int minMaxHeight;
+
+  private ReachableAlternatives(final int[][] reachableAlternatives, final int[][] minHeights,
+      final int minMaxHeight) {
+    this.reachableAlternatives = reachableAlternatives;
+    this.minHeights = minHeights;
+    this.minMaxHeight = minMaxHeight;
+  }
+
+  // the arrays are used as they are (e.g., when they are loaded from a compiled grammar)
+  public static final ReachableAlternatives fromArrays(final int[][] reachableAlternatives,
+      final int[][] minHeights, final int minMaxHeight) {
+    if (reachableAlternatives.length != minHeights.length) {
+      throw new RuntimeException("reachable alternatives do not match their min. heights");
+    }
+
+    for (int alternative = 0; alternative < reachableAlternatives.length; ++alternative) {
+      if (reachableAlternatives[alternative].length != minHeights[alternative].length) {
+        throw new RuntimeException("reachable alternatives do not match their min. heights");
+      }
+    }
+
+    return new ReachableAlternatives(reachableAlternatives, minHeights, minMaxHeight);
+  }
+
+  public final int numberOfAlternatives() {
+    return this.reachableAlternatives.length;
+  }
+
+  public final int[] getReachableAlternatives(final int alternative) {
+    return this.reachableAlternatives[alternative];
+  }
+
+  // parallel to the array returned by 'getReachableAlternatives' (in ascending order)
+  public final int[] getMinHeights(final int alternative) {
+    return this.minHeights[alternative];
+  }
+
+  // the height that is required to reach all nodes that are reachable from the root node
+  public final int getMinMaxHeight() {
+    return this.minMaxHeight;
+  }
+
+  // nodes are numbered densely: first all choices, then all sequences
+  public static final ReachableAlternatives compute(final IndexedGrammarGraph indexedGraph) {
+    final int numberOfChoices = indexedGraph.numberOfChoices();
+    final int numberOfSequences = indexedGraph.numberOfSequences();
+    final int numberOfNodes = numberOfChoices + numberOfSequences;
+
+    final int[][] predecessors = computePredecessors(indexedGraph);
+
+    // for each node, the min. heights of all nodes (UNREACHABLE if a node is not reachable)
+    final int[][] heights = new int[numberOfNodes][];
+    {
+      for (int node = 0; node < numberOfNodes; ++node) {
+        heights[node] = new int[numberOfNodes];
+        Arrays.fill(heights[node], UNREACHABLE);
+        heights[node][node] = getMinHeight(indexedGraph, node);
+      }
+    }
+
+    // backwards fixpoint iteration (successors are usually computed before their predecessors)
+    final Deque<Integer> worklist = new ArrayDeque<>();
+    final boolean[] inWorklist = new boolean[numberOfNodes];
+    {
+      for (int node = numberOfNodes - 1; node >= 0; --node) {
+        worklist.add(node);
+        inWorklist[node] = true;
+      }
+    }
+
+    final int[] newHeights = new int[numberOfNodes];
+
+    while (!worklist.isEmpty()) {
+      final int node = worklist.removeFirst();
+      inWorklist[node] = false;
+
+      if (node < numberOfChoices) {
+        computeChoice(indexedGraph, node, heights, newHeights);
+      } else {
+        computeSequence(indexedGraph, node - numberOfChoices, heights, newHeights);
+      }
+
+      if (!Arrays.equals(heights[node], newHeights)) {
+        System.arraycopy(newHeights, 0, heights[node], 0, numberOfNodes);
+
+        for (final int predecessor : predecessors[node]) {
+          if (!inWorklist[predecessor]) {
+            worklist.add(predecessor);
+            inWorklist[predecessor] = true;
+          }
+        }
+      }
+    }
+
+    final int numberOfAlternatives = indexedGraph.numberOfAlternatives();
+
+    // each sequence has exactly one incoming alternative
+    final int[] sequenceAlternatives = new int[numberOfSequences];
+    {
+      Arrays.fill(sequenceAlternatives, -1);
+
+      for (int alternative = 0; alternative < numberOfAlternatives; ++alternative) {
+        final int sequence = indexedGraph.getAlternativeTarget(alternative);
+
+        assert (sequenceAlternatives[sequence] == -1);
+        sequenceAlternatives[sequence] = alternative;
+      }
+    }
+
+    final int[][] reachableAlternatives = new int[numberOfAlternatives][];
+    final int[][] minHeights = new int[numberOfAlternatives][];
+
+    for (int alternative = 0; alternative < numberOfAlternatives; ++alternative) {
+      final int[] sequenceHeights =
+          heights[numberOfChoices + indexedGraph.getAlternativeTarget(alternative)];
+
+      final long[] entries = new long[numberOfSequences];
+      int numberOfEntries = 0;
+
+      for (int sequence = 0; sequence < numberOfSequences; ++sequence) {
+        final int height = sequenceHeights[numberOfChoices + sequence];
+
+        if (height != UNREACHABLE && sequenceAlternatives[sequence] != -1) {
+          // sort by height first and by id second
+          entries[numberOfEntries++] = ((long) height << 32) | sequenceAlternatives[sequence];
+        }
+      }
+
+      Arrays.sort(entries, 0, numberOfEntries);
+
+      reachableAlternatives[alternative] = new int[numberOfEntries];
+      minHeights[alternative] = new int[numberOfEntries];
+
+      for (int index = 0; index < numberOfEntries; ++index) {
+        reachableAlternatives[alternative][index] = (int) entries[index];
+        minHeights[alternative][index] = (int) (entries[index] >>> 32);
+      }
+    }
+
+    int minMaxHeight = 0;
+    {
+      for (final int height : heights[indexedGraph.getRootChoice()]) {
+        if (height != UNREACHABLE && height > minMaxHeight) {
+          minMaxHeight = height;
+        }
+      }
+    }
+
+    return new ReachableAlternatives(reachableAlternatives, minHeights, minMaxHeight);
+  }
+
+  private static final int getMinHeight(final IndexedGrammarGraph indexedGraph, final int node) {
+    final int numberOfChoices = indexedGraph.numberOfChoices();
+
+    if (node < numberOfChoices) {
+      return indexedGraph.getChoiceMinHeight(node);
+    } else {
+      return indexedGraph.getSequenceMinHeight(node - numberOfChoices);
+    }
+  }
+
+  private static final int[][] computePredecessors(final IndexedGrammarGraph indexedGraph) {
+    final int numberOfChoices = indexedGraph.numberOfChoices();
+    final int numberOfSequences = indexedGraph.numberOfSequences();
+
+    final int[] numberOfPredecessors = new int[numberOfChoices + numberOfSequences];
+    {
+      for (int alternative = 0; alternative < indexedGraph.numberOfAlternatives(); ++alternative) {
+        ++numberOfPredecessors[numberOfChoices + indexedGraph.getAlternativeTarget(alternative)];
+      }
+
+      for (int element = 0; element < indexedGraph.numberOfElements(); ++element) {
+        ++numberOfPredecessors[indexedGraph.getElementTarget(element)];
+      }
+    }
+
+    final int[][] predecessors = new int[numberOfPredecessors.length][];
+    {
+      for (int node = 0; node < predecessors.length; ++node) {
+        predecessors[node] = new int[numberOfPredecessors[node]];
+      }
+
+      Arrays.fill(numberOfPredecessors, 0);
+
+      for (int alternative = 0; alternative < indexedGraph.numberOfAlternatives(); ++alternative) {
+        final int source = indexedGraph.getAlternativeSource(alternative);
+        final int target = numberOfChoices + indexedGraph.getAlternativeTarget(alternative);
+
+        predecessors[target][numberOfPredecessors[target]++] = source;
+      }
+
+      for (int element = 0; element < indexedGraph.numberOfElements(); ++element) {
+        final int source = numberOfChoices + indexedGraph.getElementSource(element);
+        final int target = indexedGraph.getElementTarget(element);
+
+        predecessors[target][numberOfPredecessors[target]++] = source;
+      }
+    }
+
+    return predecessors;
+  }
+
+  private static final void computeChoice(final IndexedGrammarGraph indexedGraph,
+      final int choice, final int[][] heights, final int[] newHeights) {
+    final int numberOfChoices = indexedGraph.numberOfChoices();
+    final int increment = (indexedGraph.isProduction(choice)) ? (1) : (0);
+
+    Arrays.fill(newHeights, UNREACHABLE);
+
+    for (final int alternative : indexedGraph.getAlternatives(choice)) {
+      final int[] sequenceHeights =
+          heights[numberOfChoices + indexedGraph.getAlternativeTarget(alternative)];
+
+      for (int node = 0; node < newHeights.length; ++node) {
+        final int height = sequenceHeights[node];
+
+        if (height != UNREACHABLE && height + increment < newHeights[node]) {
+          newHeights[node] = height + increment;
+        }
+      }
+    }
+
+    newHeights[choice] = indexedGraph.getChoiceMinHeight(choice);
+  }
+
+  private static final void computeSequence(final IndexedGrammarGraph indexedGraph,
+      final int sequence, final int[][] heights, final int[] newHeights) {
+    final int numberOfChoices = indexedGraph.numberOfChoices();
+    final int minHeightSequence = indexedGraph.getSequenceMinHeight(sequence);
+
+    Arrays.fill(newHeights, UNREACHABLE);
+
+    for (final int element : indexedGraph.getElements(sequence)) {
+      final int minHeightElement = indexedGraph.getElementMinHeight(element);
+      final int[] choiceHeights = heights[indexedGraph.getElementTarget(element)];
+
+      for (int node = 0; node < newHeights.length; ++node) {
+        final int height = Math.max(Math.max(minHeightSequence, minHeightElement),
+            choiceHeights[node]);
+
+        if (height < newHeights[node]) {
+          newHeights[node] = height;
+        }
+      }
+    }
+
+    newHeights[numberOfChoices + sequence] = minHeightSequence;
+  }
+
+}
@@ -11,10 +11,21 @@ import java.util.Map;
 
 public final class ReachableComputation extends PropertyComputation<Boolean> {
 
+  private static final PropertyComputation.Direction DIRECTION =
+      PropertyComputation.Direction.FORWARDS;
+
   public static final Map<GrammarGraphNode<?,?>, Boolean> computeReachable(
       final GrammarGraph grammarGraph, final boolean considerSkippedTokensReachable) {
     final ReachableComputation computation = new ReachableComputation(
         grammarGraph.getRootNode(), considerSkippedTokensReachable);
+    return WorklistSolver.solve(computation, DIRECTION, grammarGraph);
+  }
+
+  // j-PEG's generic fixpoint iteration (only used to check the results of the 'WorklistSolver')
+  static final Map<GrammarGraphNode<?,?>, Boolean> computeReachableIteratively(
+      final GrammarGraph grammarGraph, final boolean considerSkippedTokensReachable) {
+    final ReachableComputation computation = new ReachableComputation(
+        grammarGraph.getRootNode(), considerSkippedTokensReachable);
     return computation.compute(grammarGraph);
   }
 
@@ -25,7 +36,7 @@ public final class ReachableComputation extends PropertyComputation<Boolean> {
 
   private ReachableComputation(final Choice rootNode,
       final boolean considerSkippedTokensReachable) {
-    super(PropertyComputation.Direction.FORWARDS);
+    super(DIRECTION);
     this.rootNode = rootNode;
     this.considerSkippedTokensReachable = considerSkippedTokensReachable;
   }
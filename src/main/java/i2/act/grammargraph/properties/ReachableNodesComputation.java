@@ -12,21 +12,38 @@ import java.util.Map;
 public final class ReachableNodesComputation
     extends PropertyComputation<Map<GrammarGraphNode<?,?>, Integer>> {
 
+  private static final PropertyComputation.Direction DIRECTION =
+      PropertyComputation.Direction.BACKWARDS;
+
   private static final Map<GrammarGraphNode<?,?>, Integer> UNKNOWN = null;
 
   public static final Map<GrammarGraphNode<?,?>, Map<GrammarGraphNode<?,?>, Integer>>
       computeReachableNodes(final GrammarGraph grammarGraph) {
-    final ReachableNodesComputation computation = new ReachableNodesComputation(grammarGraph);
-    return computation.compute(grammarGraph);
+    return computeReachableNodes(grammarGraph,
+        MinHeightComputation.computeMinHeights(grammarGraph));
+  }
+
+  public static final Map<GrammarGraphNode<?,?>, Map<GrammarGraphNode<?,?>, Integer>>
+      computeReachableNodes(final GrammarGraph grammarGraph,
+          final Map<GrammarGraphNode<?,?>, Integer> minHeights) {
+    final ReachableNodesComputation computation = new ReachableNodesComputation(minHeights);
+    return WorklistSolver.solve(computation, DIRECTION, grammarGraph);
+  }
+
+  // j-PEG's generic fixpoint iteration (only used to check the results of the 'WorklistSolver')
+  static final Map<GrammarGraphNode<?,?>, Map<GrammarGraphNode<?,?>, Integer>>
+      computeReachableNodesIteratively(final GrammarGraph grammarGraph,
+          final Map<GrammarGraphNode<?,?>, Integer> minHeights) {
+    return new ReachableNodesComputation(minHeights).compute(grammarGraph);
   }
 
   // -----------------------------------------------------------------------------------------------
 
   private final Map<GrammarGraphNode<?, ?>, Integer> minHeights;
 
-  private ReachableNodesComputation(final GrammarGraph grammarGraph) {
-    super(PropertyComputation.Direction.BACKWARDS);
-    this.minHeights = MinHeightComputation.computeMinHeights(grammarGraph);
+  private ReachableNodesComputation(final Map<GrammarGraphNode<?,?>, Integer> minHeights) {
+    super(DIRECTION);
+    this.minHeights = minHeights;
   }
 
   private static final boolean requiresNode(final Choice choice) {
@@ -51,6 +68,9 @@ public final class ReachableNodesComputation
     return UNKNOWN;
   }
 
+  // the in-sets are fresh maps that are created by the confluence functions for each evaluation,
+  // thus, the transfer functions update them in place instead of copying them
+
   @Override
   protected final Map<GrammarGraphNode<?,?>, Integer> transfer(final Choice node,
       final Map<GrammarGraphNode<?,?>, Integer> in) {
@@ -58,17 +78,12 @@ public final class ReachableNodesComputation
       return in;
     }
 
-    final boolean requiresNode = requiresNode(node);
-
-    final Map<GrammarGraphNode<?,?>, Integer> out = new HashMap<>();
+    final Map<GrammarGraphNode<?,?>, Integer> out = in;
     {
-      for (final Map.Entry<GrammarGraphNode<?,?>, Integer> entry : in.entrySet()) {
-        final GrammarGraphNode<?,?> reachableNode = entry.getKey();
-        final Integer minHeightNode = entry.getValue();
-
-        final int newMinHeightNode = (requiresNode) ? (minHeightNode + 1) : (minHeightNode);
-
-        out.put(reachableNode, newMinHeightNode);
+      if (requiresNode(node)) {
+        for (final Map.Entry<GrammarGraphNode<?,?>, Integer> entry : out.entrySet()) {
+          entry.setValue(entry.getValue() + 1);
+        }
       }
 
       assert (this.minHeights.containsKey(node));
@@ -86,7 +101,7 @@ public final class ReachableNodesComputation
       if (in == null) {
         out = new HashMap<>();
       } else {
-        out = new HashMap<>(in);
+        out = in;
       }
     }
 
@@ -0,0 +1,397 @@
+package i2.act.grammargraph.properties;
+
+import i2.act.grammargraph.GrammarGraph;
+import i2.act.grammargraph.GrammarGraphEdge;
+import i2.act.grammargraph.GrammarGraphNode;
+import i2.act.grammargraph.GrammarGraphNode.Choice;
+import i2.act.grammargraph.GrammarGraphNode.Sequence;
+import i2.act.util.Pair;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// computes the same fixpoint as the generic iteration of a 'PropertyComputation', but schedules
+// the nodes explicitly: the dependency graph (a node depends on its successors for backward
+// computations and on its predecessors for forward computations) is split into its strongly
+// connected components, which are solved in topological order (i.e., each component is solved
+// exactly once, after all components it depends on); within a component, a worklist that starts
+// in postorder of the dependencies only re-evaluates nodes whose inputs have changed
+//
+// components that do not depend on each other (i.e., that have the same level in the condensed
+// dependency graph) are solved in parallel on the common fork/join pool; thus, the callbacks of the
+// computation must not modify any shared state
+//
+// as in the generic iteration, nodes without any inputs keep their initial values
+public final class WorklistSolver {
+
+  // smaller levels are solved sequentially (the overhead of the fork/join pool would dominate)
+  private static final int PARALLEL_THRESHOLD = 256;
+
+  public static final <P> Map<GrammarGraphNode<?,?>, P> solve(
+      final PropertyComputation<P> computation, final PropertyComputation.Direction direction,
+      final GrammarGraph grammarGraph) {
+    return new WorklistSolver.Instance<P>(computation, direction, grammarGraph).solve();
+  }
+
+  // -----------------------------------------------------------------------------------------------
+
+  private static final class Instance<P> {
+
+    private final PropertyComputation<P> computation;
+    private final GrammarGraph grammarGraph;
+
+    private final GrammarGraphNode<?,?>[] nodes;
+
+    // for each node, the edges to the nodes it depends on (and the ids of these nodes)
+    private final GrammarGraphEdge<?,?>[][] inputEdges;
+    private final int[][] inputs;
+
+    // for each node, the nodes that depend on it
+    private final int[][] dependents;
+
+    private final Object[] values;
+
+    // for each node, the id of its strongly connected component
+    private final int[] components;
+
+    // only accessed for the members of the component that is solved (i.e., the threads that solve
+    // different components of a level never access the same entries)
+    private final boolean[] inWorklist;
+
+    public Instance(final PropertyComputation<P> computation,
+        final PropertyComputation.Direction direction, final GrammarGraph grammarGraph) {
+      this.computation = computation;
+      this.grammarGraph = grammarGraph;
+
+      final List<GrammarGraphNode<?,?>> nodes = new ArrayList<>();
+      {
+        for (final GrammarGraphNode<?,?> node : grammarGraph) {
+          nodes.add(node);
+        }
+      }
+
+      this.nodes = nodes.toArray(new GrammarGraphNode<?,?>[nodes.size()]);
+
+      // identity-based (i.e., neither 'equals()' nor 'hashCode()' of the nodes is called)
+      final Map<GrammarGraphNode<?,?>, Integer> ids = new IdentityHashMap<>();
+      {
+        for (int id = 0; id < this.nodes.length; ++id) {
+          ids.put(this.nodes[id], id);
+        }
+      }
+
+      this.inputEdges = new GrammarGraphEdge<?,?>[this.nodes.length][];
+      this.inputs = new int[this.nodes.length][];
+
+      final int[] numberOfDependents = new int[this.nodes.length];
+
+      for (int id = 0; id < this.nodes.length; ++id) {
+        final GrammarGraphNode<?,?> node = this.nodes[id];
+
+        final List<? extends GrammarGraphEdge<?,?>> edges =
+            (direction == PropertyComputation.Direction.BACKWARDS)
+                ? (node.getSuccessorEdges())
+                : (node.getPredecessorEdges());
+
+        this.inputEdges[id] = edges.toArray(new GrammarGraphEdge<?,?>[edges.size()]);
+        this.inputs[id] = new int[edges.size()];
+
+        for (int index = 0; index < edges.size(); ++index) {
+          final GrammarGraphEdge<?,?> edge = edges.get(index);
+
+          final GrammarGraphNode<?,?> input =
+              (direction == PropertyComputation.Direction.BACKWARDS)
+                  ? (edge.getTarget())
+                  : (edge.getSource());
+
+          assert (ids.containsKey(input));
+          final int inputId = ids.get(input);
+
+          this.inputs[id][index] = inputId;
+          ++numberOfDependents[inputId];
+        }
+      }
+
+      this.dependents = new int[this.nodes.length][];
+      {
+        for (int id = 0; id < this.nodes.length; ++id) {
+          this.dependents[id] = new int[numberOfDependents[id]];
+        }
+
+        Arrays.fill(numberOfDependents, 0);
+
+        for (int id = 0; id < this.nodes.length; ++id) {
+          for (final int input : this.inputs[id]) {
+            this.dependents[input][numberOfDependents[input]++] = id;
+          }
+        }
+      }
+
+      this.values = new Object[this.nodes.length];
+      this.components = new int[this.nodes.length];
+      this.inWorklist = new boolean[this.nodes.length];
+    }
+
+    public final Map<GrammarGraphNode<?,?>, P> solve() {
+      for (int id = 0; id < this.nodes.length; ++id) {
+        this.values[id] = init(this.nodes[id]);
+      }
+
+      // the members of each component, in postorder (i.e., inputs first)
+      final List<int[]> components = computeComponents();
+
+      for (final List<int[]> level : computeLevels(components)) {
+        int numberOfNodes = 0;
+
+        for (final int[] component : level) {
+          numberOfNodes += component.length;
+        }
+
+        if (level.size() > 1 && numberOfNodes >= PARALLEL_THRESHOLD) {
+          level.parallelStream().forEach(this::solveComponent);
+        } else {
+          for (final int[] component : level) {
+            solveComponent(component);
+          }
+        }
+      }
+
+      final Map<GrammarGraphNode<?,?>, P> properties = new HashMap<>();
+      {
+        for (int id = 0; id < this.nodes.length; ++id) {
+          properties.put(this.nodes[id], value(id));
+        }
+      }
+
+      return properties;
+    }
+
+    // Tarjan's algorithm (without recursion, since the grammar graphs may be deep); the
+    // components are returned in topological order of the dependencies (i.e., each component
+    // comes after all components it depends on)
+    private final List<int[]> computeComponents() {
+      final int numberOfNodes = this.nodes.length;
+
+      final int[] index = new int[numberOfNodes];
+      final int[] lowLink = new int[numberOfNodes];
+      final int[] finished = new int[numberOfNodes];
+      final boolean[] onStack = new boolean[numberOfNodes];
+
+      Arrays.fill(index, -1);
+
+      final int[] stack = new int[numberOfNodes];
+      int stackSize = 0;
+
+      // DFS stack: the node and the position of the next input to visit
+      final int[] dfsNodes = new int[numberOfNodes];
+      final int[] dfsPositions = new int[numberOfNodes];
+      int dfsSize = 0;
+
+      int nextIndex = 0;
+      int nextFinished = 0;
+
+      final List<int[]> components = new ArrayList<>();
+
+      for (int root = 0; root < numberOfNodes; ++root) {
+        if (index[root] != -1) {
+          continue;
+        }
+
+        index[root] = lowLink[root] = nextIndex++;
+        stack[stackSize++] = root;
+        onStack[root] = true;
+
+        dfsNodes[dfsSize] = root;
+        dfsPositions[dfsSize] = 0;
+        ++dfsSize;
+
+        while (dfsSize > 0) {
+          final int node = dfsNodes[dfsSize - 1];
+          final int position = dfsPositions[dfsSize - 1];
+
+          if (position < this.inputs[node].length) {
+            final int input = this.inputs[node][position];
+            ++dfsPositions[dfsSize - 1];
+
+            if (index[input] == -1) {
+              index[input] = lowLink[input] = nextIndex++;
+              stack[stackSize++] = input;
+              onStack[input] = true;
+
+              dfsNodes[dfsSize] = input;
+              dfsPositions[dfsSize] = 0;
+              ++dfsSize;
+            } else if (onStack[input]) {
+              lowLink[node] = Math.min(lowLink[node], index[input]);
+            }
+
+            continue;
+          }
+
+          // all inputs of the node have been visited
+          --dfsSize;
+          finished[node] = nextFinished++;
+
+          if (dfsSize > 0) {
+            final int parent = dfsNodes[dfsSize - 1];
+            lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+          }
+
+          if (lowLink[node] == index[node]) {
+            int size = 0;
+
+            while (stack[stackSize - 1 - size] != node) {
+              ++size;
+            }
+            ++size;
+
+            final int[] component = Arrays.copyOfRange(stack, stackSize - size, stackSize);
+            stackSize -= size;
+
+            for (final int member : component) {
+              onStack[member] = false;
+              this.components[member] = components.size();
+            }
+
+            sortByKey(component, finished);
+            components.add(component);
+          }
+        }
+      }
+
+      return components;
+    }
+
+    // the level of a component is one more than the max. level of the components it depends on
+    private final List<List<int[]>> computeLevels(final List<int[]> components) {
+      final int[] levels = new int[components.size()];
+      final List<List<int[]>> levelList = new ArrayList<>();
+
+      for (int componentId = 0; componentId < components.size(); ++componentId) {
+        final int[] component = components.get(componentId);
+        int level = 0;
+
+        for (final int member : component) {
+          for (final int input : this.inputs[member]) {
+            final int inputComponent = this.components[input];
+
+            if (inputComponent != componentId) {
+              assert (inputComponent < componentId);
+              level = Math.max(level, levels[inputComponent] + 1);
+            }
+          }
+        }
+
+        levels[componentId] = level;
+
+        while (levelList.size() <= level) {
+          levelList.add(new ArrayList<>());
+        }
+
+        levelList.get(level).add(component);
+      }
+
+      return levelList;
+    }
+
+    private static final void sortByKey(final int[] members, final int[] keys) {
+      final long[] entries = new long[members.length];
+
+      for (int index = 0; index < members.length; ++index) {
+        entries[index] = ((long) keys[members[index]] << 32) | members[index];
+      }
+
+      Arrays.sort(entries);
+
+      for (int index = 0; index < members.length; ++index) {
+        members[index] = (int) entries[index];
+      }
+    }
+
+    private final void solveComponent(final int[] component) {
+      final int componentId = this.components[component[0]];
+
+      final Deque<Integer> worklist = new ArrayDeque<>();
+
+      for (final int member : component) {
+        worklist.add(member);
+        this.inWorklist[member] = true;
+      }
+
+      while (!worklist.isEmpty()) {
+        final int node = worklist.removeFirst();
+        this.inWorklist[node] = false;
+
+        if (this.inputs[node].length == 0) {
+          // keeps its initial value
+          continue;
+        }
+
+        final P oldValue = value(node);
+        final P newValue = evaluate(node);
+
+        if (Objects.equals(oldValue, newValue)) {
+          continue;
+        }
+
+        this.values[node] = newValue;
+
+        // dependents in other components are solved later
+        for (final int dependent : this.dependents[node]) {
+          if (this.components[dependent] == componentId && !this.inWorklist[dependent]) {
+            worklist.add(dependent);
+            this.inWorklist[dependent] = true;
+          }
+        }
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final P value(final int node) {
+      return (P) this.values[node];
+    }
+
+    private final P init(final GrammarGraphNode<?,?> node) {
+      if (node instanceof Choice) {
+        return this.computation.init((Choice) node, this.grammarGraph);
+      } else {
+        assert (node instanceof Sequence);
+        return this.computation.init((Sequence) node, this.grammarGraph);
+      }
+    }
+
+    private final P evaluate(final int id) {
+      final GrammarGraphNode<?,?> node = this.nodes[id];
+
+      final GrammarGraphEdge<?,?>[] edges = this.inputEdges[id];
+      final int[] inputs = this.inputs[id];
+
+      final List<Pair<GrammarGraphEdge<?, ?>, P>> inSets = new ArrayList<>(edges.length);
+      {
+        for (int index = 0; index < edges.length; ++index) {
+          inSets.add(new Pair<GrammarGraphEdge<?, ?>, P>(edges[index], value(inputs[index])));
+        }
+      }
+
+      if (node instanceof Choice) {
+        final Choice choice = (Choice) node;
+        return this.computation.transfer(choice, this.computation.confluence(choice, inSets));
+      } else {
+        assert (node instanceof Sequence);
+
+        final Sequence sequence = (Sequence) node;
+        return this.computation.transfer(sequence,
+            this.computation.confluence(sequence, inSets));
+      }
+    }
+
+  }
+
+}
@@ -4,11 +4,14 @@ import i2.act.coverage.AlternativeCoverage;
 import i2.act.fuzzer.*;
 import i2.act.fuzzer.selection.*;
 import i2.act.fuzzer.tokens.*;
+import i2.act.fuzzer.util.CompiledGrammar;
+import i2.act.fuzzer.util.SeparatorMatrix;
 import i2.act.fuzzer.util.TokenJoiner;
 import i2.act.grammargraph.GrammarGraph;
 import i2.act.grammargraph.GrammarGraphEdge.Alternative;
 import i2.act.grammargraph.GrammarGraphNode;
 import i2.act.grammargraph.GrammarGraphNode.Choice;
+import i2.act.grammargraph.IndexedGrammarGraph;
 import i2.act.grammargraph.properties.*;
 import i2.act.packrat.Lexer;
 import i2.act.packrat.Parser;
@@ -18,19 +21,36 @@ import i2.act.packrat.cst.visitors.DotGenerator;
 import i2.act.peg.ast.Grammar;
 import i2.act.peg.ast.visitors.NameAnalysis;
 import i2.act.peg.parser.PEGParser;
+import i2.act.peg.symbols.LexerSymbol;
 import i2.act.peg.symbols.Symbol;
+import i2.act.test.AsyncTestExecutor;
 import i2.act.test.ExternalTestFunction;
-import i2.act.test.TestFunction;
+import i2.act.test.ServerTestFunction;
 import i2.act.util.ArgumentSplitter;
 import i2.act.util.FileUtil;
+import i2.act.util.Pair;
+import i2.act.util.ProcessExecutor;
+import i2.act.util.ProcessResult;
+import i2.act.util.ProcessResult.Outcome;
 import i2.act.util.RandomNumberGenerator;
 import i2.act.util.SafeWriter;
 import i2.act.util.options.ProgramArguments;
 import i2.act.util.options.ProgramArgumentsParser;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -42,27 +62,56 @@ public final class FuzzPEG {
 
   public static final int DEFAULT_BATCH_SIZE = 1000;
 
+  // by default, all programs that do not pass the test are kept
+  public static final String DEFAULT_KEEP = "nonzero_exit,signal,timeout";
+
   private static final ProgramArgumentsParser argumentsParser;
 
   private static final String OPTION_GRAMMAR = "--grammar";
   private static final String OPTION_COUNT = "--count";
   private static final String OPTION_SEED = "--seed";
+  private static final String OPTION_RNG = "--rng";
 
   private static final String OPTION_SELECTION = "--selection";
 
   private static final String OPTION_MAX_HEIGHT = "--maxHeight";
+  private static final String OPTION_TARGET_SIZE = "--targetSize";
+
+  private static final String OPTION_MAX_TOKENS = "--maxTokens";
+  private static final String OPTION_MAX_NODES = "--maxNodes";
+  private static final String OPTION_MAX_CHARACTERS = "--maxCharacters";
+  private static final String OPTION_BUDGET_POLICY = "--budgetPolicy";
 
   private static final String OPTION_OUT = "--out";
   private static final String OPTION_DOT = "--dot";
 
   private static final String OPTION_BATCH_SIZE = "--batchSize";
 
+  private static final String OPTION_THREADS = "--threads";
+
+  private static final String OPTION_STREAM = "--stream";
+
   private static final String OPTION_ONLY_ADDITIONAL_COVERAGE = "--onlyAdditionalCoverage";
   private static final String OPTION_RESET_COVERAGE = "--resetCoverage";
 
   private static final String OPTION_JOIN = "--join";
 
+  private static final String OPTION_DFA_TOKENS = "--dfaTokens";
+  private static final String OPTION_REUSE_TOKENS = "--reuseTokens";
+  private static final String OPTION_TOKEN_POOL_SIZE = "--tokenPoolSize";
+  private static final String OPTION_MAX_TOKEN_LENGTH = "--maxTokenLength";
+
+  private static final String OPTION_CACHE_DIR = "--cacheDir";
+
+  private static final String OPTION_COMPILE = "--compile";
+  private static final String OPTION_COMPILED = "--compiled";
+
   private static final String OPTION_FIND_BUGS = "--findBugs";
+  private static final String OPTION_TEST_PROCESSES = "--testProcesses";
+  private static final String OPTION_TIMEOUT = "--timeout";
+  private static final String OPTION_KEEP = "--keep";
+  private static final String OPTION_ROUTE_BY_OUTCOME = "--routeByOutcome";
+  private static final String OPTION_SERVER = "--server";
 
   private static final String OPTION_TEST_PEG = "--testPEG";
 
@@ -74,28 +123,78 @@ public final class FuzzPEG {
   private static final String OPTION_PRINT_REACHABLE_CHOICES = "--printReachableChoices";
   private static final String OPTION_PRINT_UNCOVERED = "--printUncovered";
 
+  // everything about the lexical structure of the grammar that is computed only once and shared by
+  // all token generators and token joiners (also by those of different threads); the token
+  // automata and the separator matrix are immutable, but j-PEG's lexer (and its NFAs) is not
+  // guaranteed to be thread-safe -> the lexer is only used by the main thread, each worker thread
+  // creates its own
+  private static final class LexicalInfo {
+
+    // only used by the main thread
+    private final Lexer lexer;
+
+    // 'null' if the token automata should not be used
+    private final Map<LexerSymbol, TokenDFA> tokenAutomata;
+
+    private final SeparatorMatrix separators;
+
+    public LexicalInfo(final Lexer lexer, final Map<LexerSymbol, TokenDFA> tokenAutomata,
+        final SeparatorMatrix separators) {
+      this.lexer = lexer;
+      this.tokenAutomata = tokenAutomata;
+      this.separators = separators;
+    }
+
+  }
+
   static {
     argumentsParser = new ProgramArgumentsParser();
 
-    argumentsParser.addOption(OPTION_GRAMMAR, true, true, "<path to grammar>");
+    argumentsParser.addOption(OPTION_GRAMMAR, false, true, "<path to grammar>");
     argumentsParser.addOption(OPTION_COUNT, false, true, "<count>");
     argumentsParser.addOption(OPTION_SEED, false, true, "<seed>");
+    argumentsParser.addOption(OPTION_RNG, false, true, "<algorithm>");
 
     argumentsParser.addOption(OPTION_SELECTION, false, true, "<selection strategy>");
 
     argumentsParser.addOption(OPTION_MAX_HEIGHT, false, true, "<max. height>");
+    argumentsParser.addOption(OPTION_TARGET_SIZE, false, true, "<number of tokens>");
+
+    argumentsParser.addOption(OPTION_MAX_TOKENS, false, true, "<number of tokens>");
+    argumentsParser.addOption(OPTION_MAX_NODES, false, true, "<number of nodes>");
+    argumentsParser.addOption(OPTION_MAX_CHARACTERS, false, true, "<number of characters>");
+    argumentsParser.addOption(OPTION_BUDGET_POLICY, false, true, "<policy>");
 
     argumentsParser.addOption(OPTION_OUT, false, true, "<file name pattern>");
     argumentsParser.addOption(OPTION_DOT, false, true, "<file name pattern>");
 
     argumentsParser.addOption(OPTION_BATCH_SIZE, false, true, "<batch size>");
 
+    argumentsParser.addOption(OPTION_THREADS, false, true, "<number of threads>");
+
+    argumentsParser.addOption(OPTION_STREAM, false);
+
     argumentsParser.addOption(OPTION_ONLY_ADDITIONAL_COVERAGE, false);
     argumentsParser.addOption(OPTION_RESET_COVERAGE, false);
 
     argumentsParser.addOption(OPTION_JOIN, false, true, "<separator>");
 
+    argumentsParser.addOption(OPTION_DFA_TOKENS, false);
+    argumentsParser.addOption(OPTION_REUSE_TOKENS, false, true, "<probability>");
+    argumentsParser.addOption(OPTION_TOKEN_POOL_SIZE, false, true, "<pool size>");
+    argumentsParser.addOption(OPTION_MAX_TOKEN_LENGTH, false, true, "<length>");
+
+    argumentsParser.addOption(OPTION_CACHE_DIR, false, true, "<directory>");
+
+    argumentsParser.addOption(OPTION_COMPILE, false, true, "<file name>");
+    argumentsParser.addOption(OPTION_COMPILED, false, true, "<file name>");
+
     argumentsParser.addOption(OPTION_FIND_BUGS, false, true, "<test command>");
+    argumentsParser.addOption(OPTION_TEST_PROCESSES, false, true, "<number of processes>");
+    argumentsParser.addOption(OPTION_TIMEOUT, false, true, "<seconds>");
+    argumentsParser.addOption(OPTION_KEEP, false, true, "<outcomes>");
+    argumentsParser.addOption(OPTION_ROUTE_BY_OUTCOME, false);
+    argumentsParser.addOption(OPTION_SERVER, false);
 
     argumentsParser.addOption(OPTION_TEST_PEG, false);
 
@@ -119,19 +218,36 @@ public final class FuzzPEG {
 
     assert (arguments != null);
 
-    final String grammarPath = arguments.getOption(OPTION_GRAMMAR);
+    if (arguments.hasOption(OPTION_GRAMMAR) == arguments.hasOption(OPTION_COMPILED)) {
+      abort(String.format("[!] exactly one of the '%s' and '%s' command line options is required",
+          OPTION_GRAMMAR, OPTION_COMPILED));
+    }
+
+    // 'null' if the grammar has not been compiled before
+    final CompiledGrammar compiledGrammar = (arguments.hasOption(OPTION_COMPILED))
+        ? (readCompiledGrammar(arguments.getOption(OPTION_COMPILED)))
+        : (null);
 
-    final Grammar grammar = readGrammar(grammarPath);
+    final String grammarText = (compiledGrammar == null)
+        ? (readGrammarText(arguments.getOption(OPTION_GRAMMAR)))
+        : (compiledGrammar.getGrammarText());
+
+    final Grammar grammar = parseGrammar(grammarText);
     final GrammarGraph grammarGraph = GrammarGraph.fromGrammar(grammar);
 
     if (arguments.hasOption(OPTION_PRINT_GRAMMAR_GRAPH)) {
       grammarGraph.printAsDot();
     }
 
+    // unreachable nodes have already been reported when the grammar was compiled
     final Map<GrammarGraphNode<?,?>, Boolean> reachable =
-        ReachableComputation.computeReachable(grammarGraph, true);
+        (compiledGrammar == null || arguments.hasOption(OPTION_PRINT_UNCOVERED))
+            ? (GrammarAnalysis.forGrammarGraph(grammarGraph).getReachable(true))
+            : (null);
 
-    printUnreachableNodes(reachable);
+    if (compiledGrammar == null) {
+      printUnreachableNodes(reachable);
+    }
 
     if (arguments.hasOption(OPTION_PRINT_MIN_HEIGHTS)) {
       printMinHeights(grammarGraph);
@@ -144,9 +260,9 @@ public final class FuzzPEG {
     final long initialSeed = arguments.getLongOptionOr(OPTION_SEED, System.currentTimeMillis());
     System.err.format("[i] initial seed: %d\n", initialSeed);
 
-    final int batchSize = arguments.getIntOptionOr(OPTION_BATCH_SIZE, DEFAULT_BATCH_SIZE);
-
-    final int minMaxHeight = MinMaxHeightComputation.computeMinMaxHeight(grammarGraph);
+    final int minMaxHeight = (compiledGrammar == null)
+        ? (GrammarAnalysis.forGrammarGraph(grammarGraph).getMinMaxHeight())
+        : (compiledGrammar.getMinMaxHeight());
 
     if (arguments.hasOption(OPTION_PRINT_MIN_MAX_HEIGHT)) {
       System.err.format(
@@ -164,30 +280,160 @@ public final class FuzzPEG {
       }
     }
 
-    final String separator = arguments.getOptionOr(OPTION_JOIN, " ");
-    final TokenJoiner joiner = new TokenJoiner(grammar, separator);
-
     final String fileNamePattern = arguments.getOptionOr(OPTION_OUT, null);
-    final String fileNamePatternDot = arguments.getOptionOr(OPTION_DOT, null);
 
     final boolean testPEG = arguments.hasOption(OPTION_TEST_PEG);
-    final Lexer lexer = (testPEG) ? (Lexer.forGrammar(grammar)) : (null);
+    final Lexer lexer = Lexer.forGrammar(grammar);
     final Parser parser = (testPEG) ? (Parser.fromGrammar(grammar)) : (null);
 
-    final RandomNumberGenerator rng = new RandomNumberGenerator();
+    final IndexedGrammarGraph indexedGraph = (compiledGrammar == null)
+        ? (IndexedGrammarGraph.fromGrammarGraph(grammarGraph))
+        : (getIndexedGraph(compiledGrammar, grammarGraph));
 
-    final TokenGenerator tokenGenerator = new RandomTokenGenerator(grammarGraph, rng);
+    final AlternativeCoverage coverage = (compiledGrammar == null)
+        ? (new AlternativeCoverage(indexedGraph))
+        : (getCoverage(compiledGrammar, indexedGraph));
 
-    final AlternativeCoverage coverage = new AlternativeCoverage(grammarGraph);
+    final LexicalInfo lexicalInfo = new LexicalInfo(lexer,
+        (arguments.hasOption(OPTION_DFA_TOKENS)) ? (TokenDFA.forGrammar(grammar, lexer)) : (null),
+        getSeparatorMatrix(arguments, grammar, lexer, grammarText, compiledGrammar));
 
-    final SelectionStrategy selectionStrategy =
-        getSelectionStrategy(arguments, grammarGraph, coverage, rng);
+    if (arguments.hasOption(OPTION_COMPILE)) {
+      final String fileName = arguments.getOption(OPTION_COMPILE);
 
-    final TreeFuzzer fuzzer =
-        new TreeFuzzer(grammarGraph, maxHeight, tokenGenerator, selectionStrategy, coverage);
+      try {
+        CompiledGrammar.compile(grammarText, indexedGraph, minMaxHeight, coverage.totalCount(),
+            lexicalInfo.separators).write(fileName);
+      } catch (final Exception exception) {
+        abort(String.format("[!] %s", exception.getMessage()));
+      }
 
-    final FuzzerLoop<Node<?>> fuzzerLoop =
-        getFuzzerLoop(arguments, fuzzer, coverage, rng, initialSeed);
+      System.err.format("[i] compiled grammar written to '%s'\n", fileName);
+      return;
+    }
+
+    {
+      final double reuseProbability = getReuseProbability(arguments);
+
+      if (reuseProbability < 0 || reuseProbability > 1) {
+        abort(String.format("[!] the '%s' command line option requires a value between 0 and 1",
+            OPTION_REUSE_TOKENS));
+      }
+
+      if (arguments.getIntOptionOr(OPTION_TOKEN_POOL_SIZE, 1) < 1) {
+        abort(String.format("[!] the '%s' command line option requires a positive value",
+            OPTION_TOKEN_POOL_SIZE));
+      }
+
+      try {
+        getRandomAlgorithm(arguments);
+      } catch (final IllegalArgumentException exception) {
+        abort(String.format("[!] %s", exception.getMessage()));
+      }
+
+      if (arguments.getIntOptionOr(OPTION_MAX_TOKEN_LENGTH, 1) < 1) {
+        abort(String.format("[!] the '%s' command line option requires a positive value",
+            OPTION_MAX_TOKEN_LENGTH));
+      }
+
+      if (arguments.getIntOptionOr(OPTION_TARGET_SIZE, 1) < 1) {
+        abort(String.format("[!] the '%s' command line option requires a positive value",
+            OPTION_TARGET_SIZE));
+      }
+
+      if (arguments.hasOption(OPTION_TARGET_SIZE) && arguments.hasOption(OPTION_SELECTION)) {
+        abort(String.format("[!] the '%s' command line option cannot be combined with '%s'",
+            OPTION_TARGET_SIZE, OPTION_SELECTION));
+      }
+    }
+
+    final BoltzmannModel sizeModel;
+    {
+      if (arguments.hasOption(OPTION_TARGET_SIZE)) {
+        sizeModel = BoltzmannModel.forTargetSize(
+            indexedGraph, arguments.getIntOption(OPTION_TARGET_SIZE));
+
+        System.err.format("[i] Boltzmann parameter: %g (expected size: %.1f tokens)\n",
+            sizeModel.getParameter(), sizeModel.getExpectedSize());
+      } else {
+        sizeModel = null;
+      }
+    }
+
+    final int numberOfThreads = arguments.getIntOptionOr(OPTION_THREADS, 1);
+    {
+      if (numberOfThreads < 1) {
+        abort(String.format("[!] the '%s' command line option requires a positive value",
+            OPTION_THREADS));
+      }
+
+      // the coverage after each program (and thus the reset of the coverage and the coverage log)
+      // would depend on the timing of the threads
+      if (numberOfThreads > 1) {
+        for (final String option : new String[] {
+            OPTION_ONLY_ADDITIONAL_COVERAGE, OPTION_RESET_COVERAGE, OPTION_LOG_COVERAGE}) {
+          if (arguments.hasOption(option)) {
+            abort(String.format("[!] the '%s' command line option cannot be combined with '%s'",
+                option, OPTION_THREADS));
+          }
+        }
+      }
+    }
+
+    final boolean stream = arguments.hasOption(OPTION_STREAM);
+    {
+      if (stream) {
+        for (final String option
+            : new String[] {OPTION_DOT, OPTION_TEST_PEG, OPTION_ONLY_ADDITIONAL_COVERAGE}) {
+          if (arguments.hasOption(option)) {
+            abort(String.format("[!] the '%s' command line option cannot be combined with '%s'",
+                option, OPTION_STREAM));
+          }
+        }
+
+        if (numberOfThreads > 1) {
+          abort(String.format("[!] the '%s' command line option cannot be combined with '%s'",
+              OPTION_THREADS, OPTION_STREAM));
+        }
+      }
+    }
+
+    {
+      for (final String option
+          : new String[] {OPTION_MAX_TOKENS, OPTION_MAX_NODES, OPTION_MAX_CHARACTERS}) {
+        if (arguments.getLongOptionOr(option, 1) < 1) {
+          abort(String.format("[!] the '%s' command line option requires a positive value",
+              option));
+        }
+      }
+
+      try {
+        // the tokens of a streamed program have already been written when it would be abandoned
+        if (getBudgetPolicy(arguments) == GenerationBudget.Policy.ABANDON && stream) {
+          abort(String.format("[!] the '%s' policy cannot be combined with '%s'",
+              GenerationBudget.Policy.ABANDON.getName(), OPTION_STREAM));
+        }
+      } catch (final IllegalArgumentException exception) {
+        abort(String.format("[!] %s", exception.getMessage()));
+      }
+
+      // otherwise, each program would be abandoned (or exceed the budget by its completion)
+      final int rootChoice = indexedGraph.getRootChoice();
+
+      final int minTokens =
+          MinTokensComputation.computeChoiceMinTokens(indexedGraph)[rootChoice];
+      final int minNodes = indexedGraph.getChoiceMinSize(rootChoice);
+
+      if (arguments.getLongOptionOr(OPTION_MAX_TOKENS, GenerationBudget.UNLIMITED) < minTokens) {
+        abort(String.format("[!] the '%s' command line option requires a value of at least %d "
+            + "(the smallest program of the grammar)", OPTION_MAX_TOKENS, minTokens));
+      }
+
+      if (arguments.getLongOptionOr(OPTION_MAX_NODES, GenerationBudget.UNLIMITED) < minNodes) {
+        abort(String.format("[!] the '%s' command line option requires a value of at least %d "
+            + "(the smallest program of the grammar)", OPTION_MAX_NODES, minNodes));
+      }
+    }
 
     final boolean resetCoverage = arguments.hasOption(OPTION_RESET_COVERAGE);
 
@@ -202,6 +448,42 @@ public final class FuzzPEG {
       return;
     }
 
+    final boolean synchronousTests = findBugs && requiresSynchronousTests(arguments);
+
+    // parsed once (and before the first program is generated, such that invalid outcomes are
+    // reported early)
+    final Set<Outcome> keptOutcomes = getKeptOutcomes(arguments);
+
+    final AsyncTestExecutor<ProcessResult> testExecutor;
+    {
+      final int numberOfTestProcesses = arguments.getIntOptionOr(OPTION_TEST_PROCESSES, 1);
+
+      if (numberOfTestProcesses < 1) {
+        abort(String.format("[!] the '%s' command line option requires a positive value",
+            OPTION_TEST_PROCESSES));
+      }
+
+      if (arguments.hasOption(OPTION_TIMEOUT) && arguments.getIntOption(OPTION_TIMEOUT) < 1) {
+        abort(String.format("[!] the '%s' command line option requires a positive value",
+            OPTION_TIMEOUT));
+      }
+
+      if (findBugs) {
+        testExecutor = new AsyncTestExecutor<>(numberOfTestProcesses);
+
+        if (synchronousTests) {
+          System.err.format("[i] the '%s' pattern does not contain '#{INDEX}' or '#{SEED}', "
+              + "programs are tested one after another\n", OPTION_OUT);
+        }
+      } else {
+        testExecutor = null;
+      }
+    }
+
+    final List<ServerTestFunction> testServers = new ArrayList<>();
+    final Function<String, ProcessResult> testRunner =
+        (findBugs) ? (getTestRunner(arguments, testServers)) : (null);
+
     final SafeWriter coverageLog;
     {
       if (arguments.hasOption(OPTION_LOG_COVERAGE)) {
@@ -214,55 +496,56 @@ public final class FuzzPEG {
       }
     }
 
-    for (final Node<?> tree : fuzzerLoop) {
-      final String program = joiner.join(tree);
-
-      final int index = fuzzerLoop.numberOfPrograms() - 1;
-      final long seed = initialSeed + fuzzerLoop.numberOfAttempts() - 1;
+    final int numberOfAttempts;
+    final int numberOfPrograms;
 
-      if (coverageLog != null) {
-        final int attempt = fuzzerLoop.numberOfAttempts();
-        coverageLog.write("%d,%d,%d\n", attempt, index + 1, coverage.coveredCount());
+    if (stream) {
+      numberOfPrograms = streamPrograms(arguments, indexedGraph, lexicalInfo, coverage,
+          sizeModel, coverageLog, testExecutor, testRunner, keptOutcomes, maxHeight,
+          initialSeed);
+      numberOfAttempts = numberOfPrograms;
+    } else {
+      final FuzzerLoop<String> fuzzerLoop;
+      {
+        if (numberOfThreads > 1) {
+          fuzzerLoop = getParallelFuzzerLoop(arguments, indexedGraph, lexicalInfo, coverage,
+              sizeModel, maxHeight, initialSeed, numberOfThreads);
+        } else {
+          fuzzerLoop = getSequentialFuzzerLoop(arguments, indexedGraph, lexicalInfo, coverage,
+              sizeModel, maxHeight, initialSeed);
+        }
       }
 
-      if (testPEG) {
-        testPEG(program, lexer, parser, seed);
-      } else if (fileNamePattern == null) {
-        System.out.println(program);
-      }
+      for (final String program : fuzzerLoop) {
+        final int index = fuzzerLoop.numberOfPrograms() - 1;
+        final long seed = initialSeed + fuzzerLoop.numberOfAttempts() - 1;
 
-      if (fileNamePattern != null) {
-        final String fileName =
-            expandFileNamePattern(fileNamePattern, maxHeight, index, seed, batchSize);
+        if (testPEG) {
+          testPEG(program, lexer, parser, seed);
+        } else if (fileNamePattern == null) {
+          System.out.println(program);
+        }
 
         if (findBugs) {
-          final TestFunction testFunction = new ExternalTestFunction(testCommandLine, fileName);
-
-          if (testFunction.test(program)) {
-            System.err.println("[i] program triggers a bug => keep program");
-          } else {
-            System.err.println("[i] program does not trigger a bug => discard program");
-            FileUtil.deleteFile(fileName);
-          }
-        } else {
-          writeProgramToFile(program, fileName);
+          // the program has already been written to the file
+          testProgram(testExecutor, testRunner, arguments, keptOutcomes, synchronousTests,
+              getProgramFileName(arguments, maxHeight, index, seed));
         }
-      }
-
-      if (fileNamePatternDot != null) {
-        final String fileName =
-            expandFileNamePattern(fileNamePatternDot, maxHeight, index, seed, batchSize);
 
-        writeDotToFile(tree, fileName);
+        reportCoverage(coverage, coverageLog, resetCoverage,
+            fuzzerLoop.numberOfAttempts(), fuzzerLoop.numberOfPrograms());
       }
 
-      System.err.format("[i] covered %3d of %3d alternatives\n",
-          coverage.coveredCount(), coverage.totalCount());
+      numberOfAttempts = fuzzerLoop.numberOfAttempts();
+      numberOfPrograms = fuzzerLoop.numberOfPrograms();
+    }
 
-      if (resetCoverage && coverage.isFullyCovered()) {
-        System.err.println("[i] reset coverage");
-        coverage.reset();
-      }
+    if (testExecutor != null) {
+      testExecutor.finish();
+    }
+
+    for (final ServerTestFunction testServer : testServers) {
+      testServer.close();
     }
 
     if (arguments.hasOption(OPTION_PRINT_UNCOVERED)) {
@@ -273,9 +556,6 @@ public final class FuzzPEG {
       coverageLog.close();
     }
 
-    final int numberOfAttempts = fuzzerLoop.numberOfAttempts();
-    final int numberOfPrograms = fuzzerLoop.numberOfPrograms();
-
     System.err.format("[i] required %d attempt%s for %d program%s\n",
         numberOfAttempts,
         (numberOfAttempts == 1) ? "" : "s",
@@ -283,6 +563,23 @@ public final class FuzzPEG {
         (numberOfPrograms == 1) ? "" : "s");
   }
 
+  private static final void reportCoverage(final AlternativeCoverage coverage,
+      final SafeWriter coverageLog, final boolean resetCoverage, final int numberOfAttempts,
+      final int numberOfPrograms) {
+    if (coverageLog != null) {
+      coverageLog.write("%d,%d,%d\n", numberOfAttempts, numberOfPrograms,
+          coverage.coveredCount());
+    }
+
+    System.err.format("[i] covered %3d of %3d alternatives\n",
+        coverage.coveredCount(), coverage.totalCount());
+
+    if (resetCoverage && coverage.isFullyCovered()) {
+      System.err.println("[i] reset coverage");
+      coverage.reset();
+    }
+  }
+
   private static final void usage() {
     System.err.format("USAGE: java %s\n", FuzzPEG.class.getSimpleName());
     System.err.println(argumentsParser.usage("  "));
@@ -295,9 +592,23 @@ public final class FuzzPEG {
   }
 
   public static final Grammar readGrammar(final String grammarPath) {
+    return parseGrammar(readGrammarText(grammarPath));
+  }
+
+  private static final String readGrammarText(final String grammarPath) {
+    try {
+      return FileUtil.readFile(grammarPath);
+    } catch (final Exception exception) {
+      abort(exception.getMessage());
+
+      assert (false);
+      return null;
+    }
+  }
+
+  public static final Grammar parseGrammar(final String grammarText) {
     try {
-      final String grammarInput = FileUtil.readFile(grammarPath);
-      final Grammar grammar = PEGParser.parse(grammarInput);
+      final Grammar grammar = PEGParser.parse(grammarText);
       NameAnalysis.analyze(grammar);
 
       return grammar;
@@ -309,16 +620,54 @@ public final class FuzzPEG {
     }
   }
 
+  private static final CompiledGrammar readCompiledGrammar(final String fileName) {
+    try {
+      return CompiledGrammar.read(fileName);
+    } catch (final Exception exception) {
+      abort(String.format("[!] %s", exception.getMessage()));
+
+      assert (false);
+      return null;
+    }
+  }
+
+  private static final IndexedGrammarGraph getIndexedGraph(final CompiledGrammar compiledGrammar,
+      final GrammarGraph grammarGraph) {
+    try {
+      return compiledGrammar.getIndexedGraph(grammarGraph);
+    } catch (final Exception exception) {
+      abort(String.format("[!] %s", exception.getMessage()));
+
+      assert (false);
+      return null;
+    }
+  }
+
+  // also provides the reachable alternatives of the compiled grammar to the grammar analysis (such
+  // that they are not computed again)
+  private static final AlternativeCoverage getCoverage(final CompiledGrammar compiledGrammar,
+      final IndexedGrammarGraph indexedGraph) {
+    try {
+      GrammarAnalysis.forGrammarGraph(indexedGraph.getGrammarGraph())
+          .setReachableAlternatives(compiledGrammar.getReachableAlternatives(indexedGraph));
+    } catch (final Exception exception) {
+      abort(String.format("[!] %s", exception.getMessage()));
+    }
+
+    return new AlternativeCoverage(indexedGraph,
+        compiledGrammar.getNumberOfCoverableAlternatives());
+  }
+
   private static final void printMinHeights(final GrammarGraph grammarGraph) {
     final Map<GrammarGraphNode<?,?>, Integer> minHeights =
-        MinHeightComputation.computeMinHeights(grammarGraph);
+        GrammarAnalysis.forGrammarGraph(grammarGraph).getMinHeights();
 
     printComputationResults(minHeights);
   }
 
   private static final void printReachableChoices(final GrammarGraph grammarGraph) {
     final Map<GrammarGraphNode<?,?>, Map<GrammarGraphNode<?,?>, Integer>> reachableNodes =
-        ReachableNodesComputation.computeReachableNodes(grammarGraph);
+        GrammarAnalysis.forGrammarGraph(grammarGraph).getReachableNodes();
 
     for (final Map.Entry<GrammarGraphNode<?,?>, Map<GrammarGraphNode<?,?>, Integer>> entry
         : reachableNodes.entrySet()) {
@@ -358,12 +707,14 @@ public final class FuzzPEG {
   }
 
   private static final SelectionStrategy getSelectionStrategy(final ProgramArguments arguments,
-      final GrammarGraph grammarGraph, final AlternativeCoverage coverage,
-      final RandomNumberGenerator rng) {
-    if (arguments.hasOption(OPTION_SELECTION)) {
+      final IndexedGrammarGraph indexedGraph, final AlternativeCoverage coverage,
+      final BoltzmannModel sizeModel, final RandomNumberGenerator rng) {
+    if (sizeModel != null) {
+      return new BoltzmannSelection(sizeModel, rng);
+    } else if (arguments.hasOption(OPTION_SELECTION)) {
       try {
         return SelectionStrategyParser.parse(
-            arguments.getOption(OPTION_SELECTION), grammarGraph, coverage, rng);
+            arguments.getOption(OPTION_SELECTION), indexedGraph, coverage, rng);
       } catch (final Exception exception) {
         abort(String.format(
             "[!] could not parse selection strategy: %s", exception.getMessage()));
@@ -376,6 +727,91 @@ public final class FuzzPEG {
     }
   }
 
+  private static final SeparatorMatrix getSeparatorMatrix(final ProgramArguments arguments,
+      final Grammar grammar, final Lexer lexer, final String grammarText,
+      final CompiledGrammar compiledGrammar) {
+    if (compiledGrammar != null) {
+      return compiledGrammar.getSeparatorMatrix(grammar);
+    } else if (arguments.hasOption(OPTION_CACHE_DIR)) {
+      final String cacheDirectory = arguments.getOption(OPTION_CACHE_DIR);
+
+      return SeparatorMatrix.compute(grammar, lexer, grammarText, cacheDirectory);
+    } else {
+      return SeparatorMatrix.compute(grammar, lexer);
+    }
+  }
+
+  private static final TokenGenerator getTokenGenerator(final ProgramArguments arguments,
+      final IndexedGrammarGraph indexedGraph, final LexicalInfo lexicalInfo, final Lexer lexer,
+      final RandomNumberGenerator rng) {
+    final Grammar grammar = indexedGraph.getGrammarGraph().getGrammar();
+    final int maxTokenLength =
+        arguments.getIntOptionOr(OPTION_MAX_TOKEN_LENGTH, TokenGenerator.NO_MAX_LENGTH);
+
+    final TokenGenerator randomTokenGenerator =
+        new RandomTokenGenerator(grammar, lexer, rng, maxTokenLength);
+
+    final TokenGenerator tokenGenerator;
+    {
+      if (lexicalInfo.tokenAutomata == null) {
+        tokenGenerator = randomTokenGenerator;
+      } else {
+        tokenGenerator = new DFATokenGenerator(
+            lexicalInfo.tokenAutomata, randomTokenGenerator, rng, maxTokenLength);
+      }
+    }
+
+    if (arguments.hasOption(OPTION_REUSE_TOKENS)) {
+      final int poolSize = arguments.getIntOptionOr(
+          OPTION_TOKEN_POOL_SIZE, CachingTokenGenerator.DEFAULT_POOL_SIZE);
+
+      return new CachingTokenGenerator(
+          grammar, lexer, tokenGenerator, rng, getReuseProbability(arguments), poolSize);
+    } else {
+      return tokenGenerator;
+    }
+  }
+
+  private static final RandomNumberGenerator.Algorithm getRandomAlgorithm(
+      final ProgramArguments arguments) {
+    if (arguments.hasOption(OPTION_RNG)) {
+      return RandomNumberGenerator.Algorithm.fromName(arguments.getOption(OPTION_RNG));
+    } else {
+      return RandomNumberGenerator.DEFAULT_ALGORITHM;
+    }
+  }
+
+  private static final GenerationBudget getGenerationBudget(final ProgramArguments arguments) {
+    return new GenerationBudget(
+        arguments.getLongOptionOr(OPTION_MAX_TOKENS, GenerationBudget.UNLIMITED),
+        arguments.getLongOptionOr(OPTION_MAX_NODES, GenerationBudget.UNLIMITED),
+        arguments.getLongOptionOr(OPTION_MAX_CHARACTERS, GenerationBudget.UNLIMITED),
+        getBudgetPolicy(arguments));
+  }
+
+  private static final GenerationBudget.Policy getBudgetPolicy(
+      final ProgramArguments arguments) {
+    if (arguments.hasOption(OPTION_BUDGET_POLICY)) {
+      return GenerationBudget.Policy.fromName(arguments.getOption(OPTION_BUDGET_POLICY));
+    } else {
+      return GenerationBudget.DEFAULT_POLICY;
+    }
+  }
+
+  private static final double getReuseProbability(final ProgramArguments arguments) {
+    if (arguments.hasOption(OPTION_REUSE_TOKENS)) {
+      try {
+        return Double.parseDouble(arguments.getOption(OPTION_REUSE_TOKENS));
+      } catch (final NumberFormatException exception) {
+        abort(String.format("[!] the '%s' command line option requires a value between 0 and 1",
+            OPTION_REUSE_TOKENS));
+        return 0;
+      }
+    } else {
+      return 0;
+    }
+  }
+
   private static final <R> FuzzerLoop<R> getFuzzerLoop(final ProgramArguments arguments,
       final Fuzzer<R>  fuzzer, final AlternativeCoverage coverage, final RandomNumberGenerator rng,
       final long initialSeed) {
@@ -391,6 +827,175 @@ public final class FuzzPEG {
     return fuzzerLoop;
   }
 
+  private static final FuzzerLoop<String> getSequentialFuzzerLoop(
+      final ProgramArguments arguments, final IndexedGrammarGraph indexedGraph,
+      final LexicalInfo lexicalInfo, final AlternativeCoverage coverage,
+      final BoltzmannModel sizeModel, final int maxHeight, final long initialSeed) {
+    final String separator = arguments.getOptionOr(OPTION_JOIN, " ");
+
+    final RandomNumberGenerator rng = new RandomNumberGenerator(getRandomAlgorithm(arguments));
+
+    final TokenGenerator tokenGenerator =
+        getTokenGenerator(arguments, indexedGraph, lexicalInfo, lexicalInfo.lexer, rng);
+
+    final SelectionStrategy selectionStrategy =
+        getSelectionStrategy(arguments, indexedGraph, coverage, sizeModel, rng);
+
+    final TreeFuzzer fuzzer =
+        new TreeFuzzer(indexedGraph, maxHeight, tokenGenerator, selectionStrategy, coverage);
+    fuzzer.setBudget(getGenerationBudget(arguments));
+
+    final FuzzerLoop<Node<?>> treeLoop =
+        getFuzzerLoop(arguments, fuzzer, coverage, rng, initialSeed);
+
+    final TokenJoiner joiner = new TokenJoiner(indexedGraph.getGrammarGraph().getGrammar(),
+        lexicalInfo.lexer, separator, lexicalInfo.separators);
+
+    return FuzzerLoop.map(treeLoop, (tree) -> {
+      final String program = joiner.join(tree);
+
+      final int index = treeLoop.numberOfPrograms() - 1;
+      final long seed = initialSeed + treeLoop.numberOfAttempts() - 1;
+
+      writeProgram(tree, program, index, seed, arguments, maxHeight);
+
+      return program;
+    });
+  }
+
+  private static final FuzzerLoop<String> getParallelFuzzerLoop(final ProgramArguments arguments,
+      final IndexedGrammarGraph indexedGraph, final LexicalInfo lexicalInfo,
+      final AlternativeCoverage coverage, final BoltzmannModel sizeModel, final int maxHeight,
+      final long initialSeed, final int numberOfThreads) {
+    final int count = getCount(arguments);
+    final String separator = arguments.getOptionOr(OPTION_JOIN, " ");
+
+    // each worker uses its own random number generator, token generator, and fuzzer; since the
+    // seed only depends on the number of the attempt, the generated programs do not depend on the
+    // number of threads (unless the selection strategy takes the shared coverage into account)
+    final FuzzerLoop<Pair<Node<?>, String>> programLoop =
+        FuzzerLoop.parallel(count, numberOfThreads, () -> {
+          final RandomNumberGenerator rng =
+              new RandomNumberGenerator(getRandomAlgorithm(arguments));
+
+          final Lexer lexer = Lexer.forGrammar(indexedGraph.getGrammarGraph().getGrammar());
+
+          final TokenGenerator tokenGenerator =
+              getTokenGenerator(arguments, indexedGraph, lexicalInfo, lexer, rng);
+
+          final SelectionStrategy selectionStrategy =
+              getSelectionStrategy(arguments, indexedGraph, coverage, sizeModel, rng);
+
+          final TreeFuzzer fuzzer =
+              new TreeFuzzer(indexedGraph, maxHeight, tokenGenerator, selectionStrategy, coverage);
+          fuzzer.setBudget(getGenerationBudget(arguments));
+
+          final TokenJoiner joiner = new TokenJoiner(indexedGraph.getGrammarGraph().getGrammar(),
+              lexer, separator, lexicalInfo.separators);
+
+          return (attempt) -> {
+            rng.setSeed(initialSeed + attempt);
+
+            final Node<?> tree = fuzzer.generate();
+
+            if (tree == null) {
+              // abandoned program
+              return null;
+            }
+
+            return new Pair<Node<?>, String>(tree, joiner.join(tree));
+          };
+        });
+
+    // the programs are written by the consuming thread, such that the index of a program (and thus
+    // its file name) is the same as in the sequential mode, even if attempts have been abandoned
+    return FuzzerLoop.map(programLoop, (treeAndProgram) -> {
+      final Node<?> tree = treeAndProgram.getFirst();
+      final String program = treeAndProgram.getSecond();
+
+      final int index = programLoop.numberOfPrograms() - 1;
+      final long seed = initialSeed + programLoop.numberOfAttempts() - 1;
+
+      writeProgram(tree, program, index, seed, arguments, maxHeight);
+
+      return program;
+    });
+  }
+
+  // generates the programs without building syntax trees: each token is written to the output
+  // file (or stdout) as soon as it is generated
+  private static final int streamPrograms(final ProgramArguments arguments,
+      final IndexedGrammarGraph indexedGraph, final LexicalInfo lexicalInfo,
+      final AlternativeCoverage coverage, final BoltzmannModel sizeModel,
+      final SafeWriter coverageLog, final AsyncTestExecutor<ProcessResult> testExecutor,
+      final Function<String, ProcessResult> testRunner, final Set<Outcome> keptOutcomes,
+      final int maxHeight, final long initialSeed) {
+    final int count = getCount(arguments);
+    final String separator = arguments.getOptionOr(OPTION_JOIN, " ");
+
+    final String fileNamePattern = arguments.getOptionOr(OPTION_OUT, null);
+
+    final String[] testCommandLine = getTestCommandLine(arguments);
+    final boolean synchronousTests =
+        (testCommandLine != null) && requiresSynchronousTests(arguments);
+
+    final boolean resetCoverage = arguments.hasOption(OPTION_RESET_COVERAGE);
+
+    final RandomNumberGenerator rng = new RandomNumberGenerator(getRandomAlgorithm(arguments));
+
+    final TokenGenerator tokenGenerator =
+        getTokenGenerator(arguments, indexedGraph, lexicalInfo, lexicalInfo.lexer, rng);
+
+    final SelectionStrategy selectionStrategy =
+        getSelectionStrategy(arguments, indexedGraph, coverage, sizeModel, rng);
+
+    final TokenStreamFuzzer fuzzer = new TokenStreamFuzzer(
+        indexedGraph, maxHeight, tokenGenerator, selectionStrategy, coverage);
+    fuzzer.setBudget(getGenerationBudget(arguments));
+
+    final TokenJoiner joiner = new TokenJoiner(indexedGraph.getGrammarGraph().getGrammar(),
+        lexicalInfo.lexer, separator, lexicalInfo.separators);
+
+    final Writer stdout = new BufferedWriter(new OutputStreamWriter(System.out));
+
+    int index = 0;
+
+    for (; count == FuzzerLoop.INFINITE || index < count; ++index) {
+      // same seeds as in the non-streaming mode
+      final long seed = initialSeed + index;
+      rng.setSeed(seed + 1);
+
+      try {
+        if (fileNamePattern != null) {
+          final String fileName = getProgramFileName(arguments, maxHeight, index, seed);
+
+          FileUtil.createPathIfNotExists(fileName);
+
+          try (final Writer writer = new BufferedWriter(
+              new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8))) {
+            fuzzer.generate(joiner.sink(writer));
+          }
+
+          if (testCommandLine != null) {
+            testProgram(testExecutor, testRunner, arguments, keptOutcomes, synchronousTests,
+                fileName);
+          }
+        } else {
+          fuzzer.generate(joiner.sink(stdout));
+
+          stdout.write(System.lineSeparator());
+          stdout.flush();
+        }
+      } catch (final IOException exception) {
+        throw new RuntimeException("unable to write program", exception);
+      }
+
+      reportCoverage(coverage, coverageLog, resetCoverage, index + 1, index + 1);
+    }
+
+    return index;
+  }
+
   private static final int getCount(final ProgramArguments arguments) {
     if (arguments.hasOption(OPTION_COUNT)) {
       final String countValue = arguments.getOption(OPTION_COUNT);
@@ -423,6 +1028,125 @@ public final class FuzzPEG {
     }
   }
 
+  private static final void writeProgram(final Node<?> tree, final String program,
+      final int index, final long seed, final ProgramArguments arguments, final int maxHeight) {
+    final String fileNamePattern = arguments.getOptionOr(OPTION_OUT, null);
+    final String fileNamePatternDot = arguments.getOptionOr(OPTION_DOT, null);
+
+    if (fileNamePattern != null) {
+      // if '--findBugs' is set, the program is tested (and possibly deleted) afterwards
+      writeProgramToFile(program, getProgramFileName(arguments, maxHeight, index, seed));
+    }
+
+    if (fileNamePatternDot != null) {
+      final int batchSize = arguments.getIntOptionOr(OPTION_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+
+      final String fileName =
+          expandFileNamePattern(fileNamePatternDot, maxHeight, index, seed, batchSize);
+
+      writeDotToFile(tree, fileName);
+    }
+  }
+
+  private static final String getProgramFileName(final ProgramArguments arguments,
+      final int maxHeight, final int index, final long seed) {
+    final String fileNamePattern = arguments.getOption(OPTION_OUT);
+    final int batchSize = arguments.getIntOptionOr(OPTION_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+
+    return expandFileNamePattern(fileNamePattern, maxHeight, index, seed, batchSize);
+  }
+
+  // runs the test command asynchronously; the results are handled in the order of the programs
+  private static final void testProgram(final AsyncTestExecutor<ProcessResult> testExecutor,
+      final Function<String, ProcessResult> testRunner, final ProgramArguments arguments,
+      final Set<Outcome> keptOutcomes, final boolean synchronousTests, final String fileName) {
+    final boolean routeByOutcome = arguments.hasOption(OPTION_ROUTE_BY_OUTCOME);
+
+    testExecutor.submit(() -> testRunner.apply(fileName), (result) -> {
+      if (keptOutcomes.contains(result.getOutcome())) {
+        System.err.format("[i] program '%s': %s => keep program\n", fileName, result);
+
+        if (routeByOutcome) {
+          FileUtil.moveFile(fileName, getRoutedFileName(fileName, result.getOutcome()));
+        }
+      } else {
+        System.err.format("[i] program '%s': %s => discard program\n", fileName, result);
+        FileUtil.deleteFile(fileName);
+      }
+    });
+
+    if (synchronousTests) {
+      // the next program overwrites the file (thus, the test and its handler have to finish first)
+      testExecutor.awaitPendingTests();
+    }
+  }
+
+  // the tests can only run in the background while the next programs are generated if each
+  // program is written to a file of its own
+  private static final boolean requiresSynchronousTests(final ProgramArguments arguments) {
+    final String fileNamePattern = arguments.getOption(OPTION_OUT);
+    return !fileNamePattern.contains("#{INDEX}") && !fileNamePattern.contains("#{SEED}");
+  }
+
+  // returns a function that tests the program in the given file
+  private static final Function<String, ProcessResult> getTestRunner(
+      final ProgramArguments arguments, final List<ServerTestFunction> testServers) {
+    final String[] testCommandLine = getTestCommandLine(arguments);
+    final long timeout = getTestTimeout(arguments);
+
+    if (arguments.hasOption(OPTION_SERVER)) {
+      // each test thread uses its own long-lived target
+      final ThreadLocal<ServerTestFunction> testServer = ThreadLocal.withInitial(() -> {
+        final ServerTestFunction server = new ServerTestFunction(testCommandLine, timeout);
+
+        synchronized (testServers) {
+          testServers.add(server);
+        }
+
+        return server;
+      });
+
+      return (fileName) -> testServer.get().execute(FileUtil.readFile(fileName));
+    } else {
+      return (fileName) -> {
+        final ExternalTestFunction testFunction =
+            new ExternalTestFunction(testCommandLine, fileName, timeout);
+
+        return testFunction.executeFile();
+      };
+    }
+  }
+
+  private static final long getTestTimeout(final ProgramArguments arguments) {
+    if (arguments.hasOption(OPTION_TIMEOUT)) {
+      return TimeUnit.SECONDS.toMillis(arguments.getIntOption(OPTION_TIMEOUT));
+    } else {
+      return ProcessExecutor.NO_TIMEOUT;
+    }
+  }
+
+  private static final Set<Outcome> getKeptOutcomes(final ProgramArguments arguments) {
+    final Set<Outcome> keptOutcomes = EnumSet.noneOf(Outcome.class);
+
+    for (final String name : arguments.getOptionOr(OPTION_KEEP, DEFAULT_KEEP).split(",")) {
+      try {
+        keptOutcomes.add(Outcome.fromName(name.trim()));
+      } catch (final IllegalArgumentException exception) {
+        abort(String.format("[!] %s", exception.getMessage()));
+      }
+    }
+
+    return keptOutcomes;
+  }
+
+  // moves the program into a sub-directory (named after the outcome) of its original directory
+  private static final String getRoutedFileName(final String fileName, final Outcome outcome) {
+    final File file = new File(fileName);
+    final File directory = new File(file.getAbsoluteFile().getParentFile(), outcome.getName());
+
+    return new File(directory, file.getName()).getPath();
+  }
+
   private static final void writeProgramToFile(final String program, final String fileName) {
     FileUtil.createPathIfNotExists(fileName);
 
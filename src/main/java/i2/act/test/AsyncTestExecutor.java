@@ -0,0 +1,94 @@
+package i2.act.test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// runs up to a fixed number of tests (e.g., external test processes) at the same time while the
+// caller continues to generate programs; the results are passed to the handlers in the order in
+// which the tests have been submitted, and the handlers are always called by the submitting thread
+public final class AsyncTestExecutor<R> {
+
+  private static final class PendingTest<R> {
+
+    private final Future<R> result;
+    private final Consumer<R> handler;
+
+    public PendingTest(final Future<R> result, final Consumer<R> handler) {
+      this.result = result;
+      this.handler = handler;
+    }
+
+  }
+
+  private final ExecutorService executor;
+
+  private final Deque<PendingTest<R>> pendingTests;
+  private final int maxPendingTests;
+
+  public AsyncTestExecutor(final int numberOfProcesses) {
+    this.executor = Executors.newFixedThreadPool(numberOfProcesses, (runnable) -> {
+      final Thread thread = new Thread(runnable);
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    // bounded queue: if too many tests are pending, the submitting thread has to wait (otherwise,
+    // the generated programs would pile up if the tests are slower than the generation)
+    this.pendingTests = new ArrayDeque<>();
+    this.maxPendingTests = 2 * numberOfProcesses;
+  }
+
+  public final void submit(final Callable<R> test, final Consumer<R> handler) {
+    handleFinishedTests();
+
+    while (this.pendingTests.size() >= this.maxPendingTests) {
+      handleNextTest();
+    }
+
+    this.pendingTests.addLast(new PendingTest<R>(this.executor.submit(test), handler));
+  }
+
+  // waits for all pending tests (and calls their handlers)
+  public final void awaitPendingTests() {
+    while (!this.pendingTests.isEmpty()) {
+      handleNextTest();
+    }
+  }
+
+  // waits for all pending tests and shuts down the executor
+  public final void finish() {
+    awaitPendingTests();
+    this.executor.shutdown();
+  }
+
+  private final void handleFinishedTests() {
+    while (!this.pendingTests.isEmpty() && this.pendingTests.peekFirst().result.isDone()) {
+      handleNextTest();
+    }
+  }
+
+  private final void handleNextTest() {
+    assert (!this.pendingTests.isEmpty());
+    final PendingTest<R> next = this.pendingTests.removeFirst();
+
+    final R result;
+    {
+      try {
+        result = next.result.get();
+      } catch (final ExecutionException exception) {
+        throw new RuntimeException("test failed", exception.getCause());
+      } catch (final InterruptedException exception) {
+        throw new RuntimeException("test was interrupted", exception);
+      }
+    }
+
+    next.handler.accept(result);
+  }
+
+}
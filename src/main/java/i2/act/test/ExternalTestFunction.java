@@ -3,15 +3,25 @@ package i2.act.test;
 import i2.act.util.ArgumentSplitter;
 import i2.act.util.FileUtil;
 import i2.act.util.ProcessExecutor;
+import i2.act.util.ProcessResult;
 
 public final class ExternalTestFunction implements TestFunction {
 
   private final String[] commandLine;
   private final String fileName;
 
+  // in milliseconds
+  private final long timeout;
+
   public ExternalTestFunction(final String[] commandLine, final String fileName) {
+    this(commandLine, fileName, ProcessExecutor.NO_TIMEOUT);
+  }
+
+  public ExternalTestFunction(final String[] commandLine, final String fileName,
+      final long timeout) {
     this.commandLine = commandLine;
     this.fileName = fileName;
+    this.timeout = timeout;
   }
 
   @Override
@@ -19,12 +29,21 @@ public final class ExternalTestFunction implements TestFunction {
     FileUtil.createPathIfNotExists(this.fileName);
     FileUtil.writeToFile(program, this.fileName);
 
-    // execute external command
-    final String[] commandLine = ArgumentSplitter.appendArgument(this.commandLine, this.fileName);
+    return testFile();
+  }
 
-    final boolean containsBug = !ProcessExecutor.executeAndCheck(commandLine);
+  // tests the program that has already been written to the file
+  public final boolean testFile() {
+    final boolean containsBug = !executeFile().passed();
 
     return containsBug;
   }
 
+  public final ProcessResult executeFile() {
+    // execute external command
+    final String[] commandLine = ArgumentSplitter.appendArgument(this.commandLine, this.fileName);
+
+    return ProcessExecutor.execute(this.timeout, commandLine);
+  }
+
 }
@@ -0,0 +1,191 @@
+package i2.act.test;
+
+import i2.act.util.ProcessExecutor;
+import i2.act.util.ProcessResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// starts the target once and sends all programs to this long-lived process; the protocol is as
+// follows (all integers are 4 bytes, big-endian):
+//
+//   request:  <length of program in bytes> <program (UTF-8)>
+//   response: <verdict> (zero if the program does not trigger a bug, non-zero otherwise)
+//
+// if the target terminates (e.g., because it crashed) or does not respond in time, the program is
+// assumed to trigger a bug and the target is restarted for the next program
+//
+// the timeout covers the whole exchange (i.e., also sending the program to a target that does not
+// read its input); a target that is restarted is killed together with all of its descendants, and
+// each started target gets its own exchange thread (a thread that is still blocked on the output of
+// an old target thus never delays the exchanges with the new one)
+public final class ServerTestFunction implements TestFunction {
+
+  // time (in milliseconds) that the target has to terminate on its own
+  private static final long GRACE_PERIOD = 1000;
+
+  private final String[] commandLine;
+
+  // in milliseconds
+  private final long timeout;
+
+  private Process process;
+  private ExecutorService exchange;
+  private DataOutputStream toTarget;
+  private DataInputStream fromTarget;
+
+  public ServerTestFunction(final String[] commandLine) {
+    this(commandLine, ProcessExecutor.NO_TIMEOUT);
+  }
+
+  public ServerTestFunction(final String[] commandLine, final long timeout) {
+    this.commandLine = commandLine;
+    this.timeout = timeout;
+  }
+
+  @Override
+  public final boolean test(final String program) {
+    final boolean containsBug = !execute(program).passed();
+
+    return containsBug;
+  }
+
+  public final synchronized ProcessResult execute(final String program) {
+    final long startTime = System.nanoTime();
+
+    if (this.process == null || !this.process.isAlive()) {
+      start();
+    }
+
+    final byte[] bytes = program.getBytes(StandardCharsets.UTF_8);
+
+    final DataOutputStream toTarget = this.toTarget;
+    final DataInputStream fromTarget = this.fromTarget;
+
+    // the program is sent and the verdict is read by a separate thread (to be able to wait with a
+    // timeout)
+    final Future<Integer> response = this.exchange.submit(() -> {
+      toTarget.writeInt(bytes.length);
+      toTarget.write(bytes);
+      toTarget.flush();
+
+      return fromTarget.readInt();
+    });
+
+    try {
+      if (this.timeout == ProcessExecutor.NO_TIMEOUT) {
+        return verdict(response.get(), startTime);
+      } else {
+        return verdict(response.get(this.timeout, TimeUnit.MILLISECONDS), startTime);
+      }
+    } catch (final TimeoutException exception) {
+      System.err.println("[!] target did not respond in time => restart target");
+      response.cancel(true);
+      stop();
+
+      return ProcessResult.timedOut(elapsedMillis(startTime));
+    } catch (final ExecutionException exception) {
+      // target has terminated
+      return crashed(startTime);
+    } catch (final InterruptedException exception) {
+      throw new RuntimeException("test was interrupted", exception);
+    }
+  }
+
+  public final synchronized void close() {
+    if (this.process != null) {
+      try {
+        // well-behaved targets terminate when their input is closed
+        this.toTarget.close();
+        this.process.waitFor(GRACE_PERIOD, TimeUnit.MILLISECONDS);
+      } catch (final IOException exception) {
+        // target has already terminated
+      } catch (final InterruptedException exception) {
+        throw new RuntimeException("test was interrupted", exception);
+      }
+
+      stop();
+    }
+  }
+
+  private final void start() {
+    final ProcessBuilder processBuilder = new ProcessBuilder(this.commandLine);
+    processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+    try {
+      this.process = processBuilder.start();
+    } catch (final IOException exception) {
+      throw new RuntimeException("unable to start target", exception);
+    }
+
+    this.toTarget = new DataOutputStream(new BufferedOutputStream(this.process.getOutputStream()));
+    this.fromTarget = new DataInputStream(new BufferedInputStream(this.process.getInputStream()));
+
+    this.exchange = Executors.newSingleThreadExecutor((runnable) -> {
+      final Thread thread = new Thread(runnable);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private final void stop() {
+    try {
+      ProcessExecutor.killProcessTree(this.process);
+    } catch (final InterruptedException exception) {
+      throw new RuntimeException("test was interrupted", exception);
+    }
+
+    reset();
+  }
+
+  private final void reset() {
+    // interrupts a pending exchange (which fails anyway, since the target has terminated)
+    this.exchange.shutdownNow();
+
+    this.process = null;
+    this.exchange = null;
+    this.toTarget = null;
+    this.fromTarget = null;
+  }
+
+  private final ProcessResult verdict(final int verdict, final long startTime) {
+    return ProcessResult.verdict(verdict, elapsedMillis(startTime));
+  }
+
+  private final ProcessResult crashed(final long startTime) {
+    System.err.println("[!] target terminated => restart target");
+
+    final int exitValue;
+    {
+      try {
+        // the target may have closed its output without terminating
+        if (!this.process.waitFor(GRACE_PERIOD, TimeUnit.MILLISECONDS)) {
+          ProcessExecutor.killProcessTree(this.process);
+        }
+
+        exitValue = this.process.waitFor();
+      } catch (final InterruptedException exception) {
+        throw new RuntimeException("test was interrupted", exception);
+      }
+    }
+
+    reset();
+
+    return ProcessResult.terminated(exitValue, elapsedMillis(startTime));
+  }
+
+  private static final long elapsedMillis(final long startTime) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+  }
+
+}
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 public final class FileUtil {
 
@@ -73,6 +74,17 @@ public final class FileUtil {
     return file.delete();
   }
 
+  public static final void moveFile(final String fromFileName, final String toFileName) {
+    createPathIfNotExists(toFileName);
+
+    try {
+      Files.move(Paths.get(fromFileName), Paths.get(toFileName),
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (final IOException exception) {
+      throw new RuntimeException("unable to move file", exception);
+    }
+  }
+
   public static final void createPathIfNotExists(final String fileName) {
     final File file = new File(fileName);
     createPathIfNotExists(file);
@@ -1,9 +1,16 @@
 package i2.act.util;
 
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
 public final class ProcessExecutor {
 
   public static final int EXIT_VALUE_SUCCESS = 0;
 
+  public static final long NO_TIMEOUT = -1;
+
   public static final int execute(final String... command) {
     final ProcessBuilder processBuilder = new ProcessBuilder(command);
     processBuilder.inheritIO();
@@ -21,4 +28,66 @@ public final class ProcessExecutor {
     return execute(command) == EXIT_VALUE_SUCCESS;
   }
 
+  // if the process does not terminate within the given timeout (in milliseconds), the process and
+  // all of its descendants are killed
+  public static final ProcessResult execute(final long timeout, final String... command) {
+    final ProcessBuilder processBuilder = new ProcessBuilder(command);
+    processBuilder.inheritIO();
+
+    final long startTime = System.nanoTime();
+
+    try {
+      final Process process = processBuilder.start();
+
+      if (timeout == NO_TIMEOUT) {
+        process.waitFor();
+      } else if (!process.waitFor(timeout, TimeUnit.MILLISECONDS)) {
+        killProcessTree(process);
+        return ProcessResult.timedOut(elapsedMillis(startTime));
+      }
+
+      return ProcessResult.exited(process.exitValue(), elapsedMillis(startTime));
+    } catch (final Throwable throwable) {
+      throw new RuntimeException("unable to execute command", throwable);
+    }
+  }
+
+  private static final long elapsedMillis(final long startTime) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+  }
+
+  // kills the process and all of its descendants (e.g., the actual target if the process is a
+  // wrapper script) and waits for the process to terminate
+  public static final void killProcessTree(final Process process) throws InterruptedException {
+    // the descendants have to be determined before the process itself is killed (otherwise, they
+    // would be re-parented)
+    killDescendants(process);
+
+    process.destroyForcibly();
+    process.waitFor();
+  }
+
+  // 'ProcessHandle' is only available as of Java 9 -> use it via reflection (on Java 8, only the
+  // process itself is killed)
+  private static final void killDescendants(final Process process) {
+    try {
+      final Class<?> processHandleClass = Class.forName("java.lang.ProcessHandle");
+      final Method toHandle = Process.class.getMethod("toHandle");
+      final Method descendants = processHandleClass.getMethod("descendants");
+      final Method destroyForcibly = processHandleClass.getMethod("destroyForcibly");
+
+      final Object processHandle = toHandle.invoke(process);
+
+      final Iterator<?> iterator = ((Stream<?>) descendants.invoke(processHandle)).iterator();
+
+      while (iterator.hasNext()) {
+        destroyForcibly.invoke(iterator.next());
+      }
+    } catch (final ClassNotFoundException | NoSuchMethodException exception) {
+      // Java 8
+    } catch (final ReflectiveOperationException exception) {
+      System.err.format("[!] unable to kill descendants of process: %s\n", exception.getMessage());
+    }
+  }
+
 }
@@ -0,0 +1,122 @@
+package i2.act.util;
+
+public final class ProcessResult {
+
+  public static enum Outcome {
+    PASS,
+    NONZERO_EXIT,
+    SIGNAL,
+    TIMEOUT;
+
+    public final String getName() {
+      return name().toLowerCase();
+    }
+
+    public static final Outcome fromName(final String name) {
+      for (final Outcome outcome : values()) {
+        if (outcome.getName().equalsIgnoreCase(name)) {
+          return outcome;
+        }
+      }
+
+      throw new IllegalArgumentException(String.format("unknown outcome: '%s'", name));
+    }
+
+  }
+
+  // on Unix-like systems, the exit value of a process that has been terminated by a signal is
+  // 128 plus the number of the signal
+  private static final int SIGNAL_OFFSET = 128;
+  private static final int MAX_SIGNAL = 64;
+
+  public static final int NO_EXIT_VALUE = -1;
+
+  private final Outcome outcome;
+  private final int exitValue;
+  private final long wallTime;
+
+  private ProcessResult(final Outcome outcome, final int exitValue, final long wallTime) {
+    this.outcome = outcome;
+    this.exitValue = exitValue;
+    this.wallTime = wallTime;
+  }
+
+  public static final ProcessResult exited(final int exitValue, final long wallTime) {
+    final Outcome outcome;
+    {
+      if (exitValue == ProcessExecutor.EXIT_VALUE_SUCCESS) {
+        outcome = Outcome.PASS;
+      } else if (exitValue > SIGNAL_OFFSET && exitValue <= SIGNAL_OFFSET + MAX_SIGNAL) {
+        outcome = Outcome.SIGNAL;
+      } else {
+        outcome = Outcome.NONZERO_EXIT;
+      }
+    }
+
+    return new ProcessResult(outcome, exitValue, wallTime);
+  }
+
+  // verdict of a long-lived target (see 'ServerTestFunction'): zero if the test passed
+  public static final ProcessResult verdict(final int verdict, final long wallTime) {
+    final Outcome outcome = (verdict == 0) ? (Outcome.PASS) : (Outcome.NONZERO_EXIT);
+    return new ProcessResult(outcome, verdict, wallTime);
+  }
+
+  // a long-lived target terminated unexpectedly (i.e., even an exit value of zero does not pass)
+  public static final ProcessResult terminated(final int exitValue, final long wallTime) {
+    if (exitValue == ProcessExecutor.EXIT_VALUE_SUCCESS) {
+      return new ProcessResult(Outcome.NONZERO_EXIT, exitValue, wallTime);
+    } else {
+      return exited(exitValue, wallTime);
+    }
+  }
+
+  public static final ProcessResult timedOut(final long wallTime) {
+    return new ProcessResult(Outcome.TIMEOUT, NO_EXIT_VALUE, wallTime);
+  }
+
+  public final Outcome getOutcome() {
+    return this.outcome;
+  }
+
+  public final boolean passed() {
+    return this.outcome == Outcome.PASS;
+  }
+
+  public final int getExitValue() {
+    return this.exitValue;
+  }
+
+  public final int getSignal() {
+    assert (this.outcome == Outcome.SIGNAL);
+    return this.exitValue - SIGNAL_OFFSET;
+  }
+
+  // in milliseconds
+  public final long getWallTime() {
+    return this.wallTime;
+  }
+
+  @Override
+  public final String toString() {
+    switch (this.outcome) {
+      case PASS: {
+        return String.format("pass (%d ms)", this.wallTime);
+      }
+      case NONZERO_EXIT: {
+        return String.format("exit value %d (%d ms)", this.exitValue, this.wallTime);
+      }
+      case SIGNAL: {
+        return String.format("signal %d (%d ms)", getSignal(), this.wallTime);
+      }
+      case TIMEOUT: {
+        return String.format("timeout (%d ms)", this.wallTime);
+      }
+      default: {
+        assert (false);
+        throw new RuntimeException("unknown outcome: " + this.outcome);
+      }
+    }
+  }
+
+}
@@ -2,20 +2,129 @@ package i2.act.util;
 
 import java.util.Random;
 
+// the 'JAVA' algorithm (the default) wraps 'java.util.Random' and yields the same values as
+// before; the other algorithms are not synchronized and initialize their state from the seed via
+// SplitMix64, such that consecutive seeds (as used for consecutive programs) yield independent
+// streams
+//
+// the generators are not split (or jumped ahead) for the worker threads: each program is
+// generated with a generator that is reseeded with 'initialSeed + attempt' (such that the programs
+// do not depend on the number of threads), i.e., each program has a stream of its own
+// - 'XOSHIRO' derives its state from four SplitMix64 outputs of the seed
+// - 'SPLITMIX' uses the seed directly as its counter; the i-th value of the stream for seed 's'
+//   is the mixed counter 's + (i + 1) * GOLDEN_GAMMA', thus, the streams for seeds 's' and
+//   's + k' only share values if they are 'k * GOLDEN_GAMMA^(-1) mod 2^64' values apart (more than
+//   2^31 for all 'k < 2^32', i.e., far more values than a single program draws), and the mixing
+//   function decorrelates neighboring counters
 public final class RandomNumberGenerator {
 
+  public static enum Algorithm {
+    JAVA,
+    SPLITMIX,
+    XOSHIRO;
+
+    public final String getName() {
+      return name().toLowerCase();
+    }
+
+    public static final Algorithm fromName(final String name) {
+      for (final Algorithm algorithm : values()) {
+        if (algorithm.getName().equalsIgnoreCase(name)) {
+          return algorithm;
+        }
+      }
+
+      throw new IllegalArgumentException(
+          String.format("unknown random number generator: '%s'", name));
+    }
+
+  }
+
+  public static final Algorithm DEFAULT_ALGORITHM = Algorithm.JAVA;
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private final Algorithm algorithm;
+
+  // only used by the 'JAVA' algorithm
   private final Random random;
 
+  // 'SPLITMIX' only uses the first word of the state
+  private long state0;
+  private long state1;
+  private long state2;
+  private long state3;
+
   public RandomNumberGenerator() {
     this(System.currentTimeMillis());
   }
 
   public RandomNumberGenerator(final long seed) {
-    this.random = new Random(seed);
+    this(DEFAULT_ALGORITHM, seed);
+  }
+
+  public RandomNumberGenerator(final Algorithm algorithm) {
+    this(algorithm, System.currentTimeMillis());
+  }
+
+  public RandomNumberGenerator(final Algorithm algorithm, final long seed) {
+    this.algorithm = algorithm;
+    this.random = (algorithm == Algorithm.JAVA) ? (new Random(seed)) : (null);
+
+    setSeed(seed);
+  }
+
+  public final Algorithm getAlgorithm() {
+    return this.algorithm;
   }
 
   public final void setSeed(final long seed) {
-    this.random.setSeed(seed);
+    switch (this.algorithm) {
+      case JAVA: {
+        this.random.setSeed(seed);
+        break;
+      }
+      case SPLITMIX: {
+        this.state0 = seed;
+        break;
+      }
+      case XOSHIRO: {
+        // the state must not be all zero, which SplitMix64 guarantees for four consecutive outputs
+        this.state0 = seed;
+        final long state0 = nextSplitMix();
+        final long state1 = nextSplitMix();
+        final long state2 = nextSplitMix();
+        final long state3 = nextSplitMix();
+
+        this.state0 = state0;
+        this.state1 = state1;
+        this.state2 = state2;
+        this.state3 = state3;
+        break;
+      }
+      default: {
+        assert (false);
+        throw new RuntimeException("unknown algorithm: " + this.algorithm);
+      }
+    }
+  }
+
+  public final long nextLong() {
+    switch (this.algorithm) {
+      case JAVA: {
+        return this.random.nextLong();
+      }
+      case SPLITMIX: {
+        return nextSplitMix();
+      }
+      case XOSHIRO: {
+        return nextXoshiro();
+      }
+      default: {
+        assert (false);
+        throw new RuntimeException("unknown algorithm: " + this.algorithm);
+      }
+    }
   }
 
   private final boolean isPowerOfTwo(final int value) {
@@ -23,19 +132,71 @@ public final class RandomNumberGenerator {
   }
 
   public final int nextInt(final int bound) {
-    if (isPowerOfTwo(bound)) {
-      return this.random.nextInt(bound * 3) / 3;
-    } else {
-      return this.random.nextInt(bound);
+    if (this.algorithm == Algorithm.JAVA) {
+      if (isPowerOfTwo(bound)) {
+        return this.random.nextInt(bound * 3) / 3;
+      } else {
+        return this.random.nextInt(bound);
+      }
     }
+
+    assert (bound > 0);
+
+    // multiply-shift with rejection of the biased values (Lemire's method)
+    long product = (nextLong() >>> 32) * bound;
+    long low = product & 0xffffffffL;
+
+    if (low < bound) {
+      final long threshold = (0x100000000L - bound) % bound;
+
+      while (low < threshold) {
+        product = (nextLong() >>> 32) * bound;
+        low = product & 0xffffffffL;
+      }
+    }
+
+    return (int) (product >>> 32);
   }
 
   public final double nextDouble() {
-    return this.random.nextDouble();
+    if (this.algorithm == Algorithm.JAVA) {
+      return this.random.nextDouble();
+    }
+
+    return (nextLong() >>> 11) * 0x1.0p-53;
   }
 
   public final boolean nextBoolean() {
-    return this.random.nextInt(6) < 3;
+    if (this.algorithm == Algorithm.JAVA) {
+      return this.random.nextInt(6) < 3;
+    }
+
+    return nextLong() < 0;
+  }
+
+  private final long nextSplitMix() {
+    this.state0 += GOLDEN_GAMMA;
+
+    long value = this.state0;
+    value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+    value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+
+    return value ^ (value >>> 31);
+  }
+
+  private final long nextXoshiro() {
+    final long result = Long.rotateLeft(this.state1 * 5, 7) * 9;
+    final long shifted = this.state1 << 17;
+
+    this.state2 ^= this.state0;
+    this.state3 ^= this.state1;
+    this.state1 ^= this.state2;
+    this.state0 ^= this.state3;
+
+    this.state2 ^= shifted;
+    this.state3 = Long.rotateLeft(this.state3, 45);
+
+    return result;
   }
 
 }
@@ -0,0 +1,164 @@
+package i2.act.grammargraph.properties;
+
+import i2.act.grammargraph.GrammarGraph;
+import i2.act.grammargraph.GrammarGraphNode;
+import i2.act.grammargraph.GrammarGraphNode.Sequence;
+import i2.act.grammargraph.IndexedGrammarGraph;
+import i2.act.main.FuzzPEG;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// checks that the 'WorklistSolver' computes the same results as j-PEG's generic fixpoint iteration
+// and that the 'ReachableAlternatives' match the 'ReachableNodesComputation' for all grammars in
+// the 'grammars' directory (which can be set via the 'fuzzpeg.grammars' system property)
+public final class PropertyComputationTest {
+
+  private static final String PROPERTY_GRAMMARS = "fuzzpeg.grammars";
+
+  private static final List<File> getGrammarFiles() {
+    final File grammarDirectory = new File(System.getProperty(PROPERTY_GRAMMARS, "grammars"));
+    final File[] grammarFiles =
+        grammarDirectory.listFiles((file) -> file.getName().endsWith(".txt"));
+
+    Assert.assertTrue(String.format("no grammars found in '%s'", grammarDirectory),
+        grammarFiles != null && grammarFiles.length > 0);
+
+    Arrays.sort(grammarFiles);
+
+    return Arrays.asList(grammarFiles);
+  }
+
+  private static final GrammarGraph readGrammarGraph(final File grammarFile) {
+    return GrammarGraph.fromGrammar(FuzzPEG.readGrammar(grammarFile.getPath()));
+  }
+
+  @Test
+  public final void testMinHeights() {
+    for (final File grammarFile : getGrammarFiles()) {
+      final GrammarGraph grammarGraph = readGrammarGraph(grammarFile);
+
+      Assert.assertEquals(grammarFile.getName(),
+          MinHeightComputation.computeMinHeightsIteratively(grammarGraph),
+          MinHeightComputation.computeMinHeights(grammarGraph));
+    }
+  }
+
+  @Test
+  public final void testMinSizes() {
+    for (final File grammarFile : getGrammarFiles()) {
+      final GrammarGraph grammarGraph = readGrammarGraph(grammarFile);
+
+      Assert.assertEquals(grammarFile.getName(),
+          MinSizeComputation.computeMinSizesIteratively(grammarGraph),
+          MinSizeComputation.computeMinSizes(grammarGraph));
+    }
+  }
+
+  @Test
+  public final void testReachable() {
+    for (final File grammarFile : getGrammarFiles()) {
+      final GrammarGraph grammarGraph = readGrammarGraph(grammarFile);
+
+      for (final boolean considerSkippedTokensReachable : new boolean[] {false, true}) {
+        Assert.assertEquals(grammarFile.getName(),
+            ReachableComputation.computeReachableIteratively(
+                grammarGraph, considerSkippedTokensReachable),
+            ReachableComputation.computeReachable(grammarGraph, considerSkippedTokensReachable));
+      }
+    }
+  }
+
+  @Test
+  public final void testReachableNodes() {
+    for (final File grammarFile : getGrammarFiles()) {
+      final GrammarGraph grammarGraph = readGrammarGraph(grammarFile);
+
+      final Map<GrammarGraphNode<?,?>, Integer> minHeights =
+          MinHeightComputation.computeMinHeights(grammarGraph);
+
+      Assert.assertEquals(grammarFile.getName(),
+          ReachableNodesComputation.computeReachableNodesIteratively(grammarGraph, minHeights),
+          ReachableNodesComputation.computeReachableNodes(grammarGraph, minHeights));
+    }
+  }
+
+  // the 'ReachableAlternatives' deliberately treat nodes with an unknown min. height (i.e.,
+  // unproductive rules) as unreachable, whereas the 'ReachableNodesComputation' computes heights
+  // for them that are not meaningful -> grammars with such nodes are not compared
+  @Test
+  public final void testReachableAlternatives() {
+    for (final File grammarFile : getGrammarFiles()) {
+      final GrammarGraph grammarGraph = readGrammarGraph(grammarFile);
+      final IndexedGrammarGraph indexedGraph = IndexedGrammarGraph.fromGrammarGraph(grammarGraph);
+
+      final Map<GrammarGraphNode<?,?>, Integer> minHeights =
+          MinHeightComputation.computeMinHeights(grammarGraph);
+
+      if (minHeights.containsValue(IndexedGrammarGraph.UNKNOWN)) {
+        System.err.format("[i] skipping '%s' (unproductive rules)\n", grammarFile.getName());
+        continue;
+      }
+
+      final Map<GrammarGraphNode<?,?>, Map<GrammarGraphNode<?,?>, Integer>> reachableNodes =
+          ReachableNodesComputation.computeReachableNodes(grammarGraph, minHeights);
+
+      final ReachableAlternatives reachableAlternatives =
+          ReachableAlternatives.compute(indexedGraph);
+
+      Assert.assertEquals(grammarFile.getName(),
+          MinMaxHeightComputation.computeMinMaxHeight(grammarGraph, reachableNodes),
+          reachableAlternatives.getMinMaxHeight());
+
+      // each sequence is the target of exactly one alternative
+      final int[] sequenceAlternatives = new int[indexedGraph.numberOfSequences()];
+      {
+        for (int alternative = 0; alternative < indexedGraph.numberOfAlternatives();
+            ++alternative) {
+          sequenceAlternatives[indexedGraph.getAlternativeTarget(alternative)] = alternative;
+        }
+      }
+
+      for (int alternative = 0; alternative < indexedGraph.numberOfAlternatives(); ++alternative) {
+        final Sequence sequence =
+            indexedGraph.getSequence(indexedGraph.getAlternativeTarget(alternative));
+
+        // reachable alternative -> min. height
+        final Map<Integer, Integer> expected = new HashMap<>();
+        {
+          for (final Map.Entry<GrammarGraphNode<?,?>, Integer> entry
+              : reachableNodes.get(sequence).entrySet()) {
+            if (entry.getKey() instanceof Sequence) {
+              final int reachableSequence = indexedGraph.getId((Sequence) entry.getKey());
+              expected.put(sequenceAlternatives[reachableSequence], entry.getValue());
+            }
+          }
+        }
+
+        final int[] alternatives = reachableAlternatives.getReachableAlternatives(alternative);
+        final int[] heights = reachableAlternatives.getMinHeights(alternative);
+
+        final Map<Integer, Integer> actual = new HashMap<>();
+        {
+          for (int index = 0; index < alternatives.length; ++index) {
+            actual.put(alternatives[index], heights[index]);
+
+            Assert.assertTrue(grammarFile.getName(),
+                index == 0 || heights[index - 1] <= heights[index]);
+          }
+        }
+
+        Assert.assertEquals(
+            String.format("%s (alternative %d)", grammarFile.getName(), alternative),
+            expected, actual);
+      }
+    }
+  }
+
+}